@@ -0,0 +1,26 @@
+import javax.sound.sampled.AudioFormat;
+
+public interface AudioSink {
+    /* Destination for the PCM data streamed by the playback engine */
+
+    public void open (AudioFormat format) throws MultimediaException;
+                   /* Prepares the sink to receive data in the given format.
+                      Called once at the start of every track. It throws a
+                      MultimediaException if the format cannot be handled. */
+
+    public void write (byte[] buffer, int offset, int length);
+                   /* Accepts the next block of PCM data. May block until the
+                      sink has room for it. */
+
+    public void drain ();
+                   /* Waits until all the data written so far has been played.
+                      Called when a track finishes normally. */
+
+    public void flush ();
+                   /* Discards any data that has been written but not yet
+                      played. Called when a track is stopped or skipped. */
+
+    public void close ();
+                   /* Releases the resources held for the current track. */
+
+}
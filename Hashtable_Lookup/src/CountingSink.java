@@ -0,0 +1,123 @@
+import javax.sound.sampled.AudioFormat;
+
+/**
+ * Audio sink that plays nothing and only counts what it receives. Lets the playback
+ * engine be run and tested on machines without a sound card or display.
+ */
+public class CountingSink implements AudioSink {
+	//The number of bytes written over every track.
+	private long bytes;
+	//The number of tracks that have been opened.
+	private int tracks;
+	//The number of tracks that finished normally.
+	private int drained;
+	//The number of tracks that were stopped or skipped.
+	private int flushed;
+	//The format of the last track that was opened.
+	private AudioFormat format;
+	//How long each write should take, to simulate a real line (0 for none).
+	private long writeDelay;
+
+	/**
+	 * Constructor for a sink that accepts data as fast as it is written.
+	 */
+	public CountingSink(){
+		this(0);
+	}
+
+	/**
+	 * Constructor for a sink that takes some time for every write.
+	 * @param writeDelay The number of milliseconds each write takes.
+	 */
+	public CountingSink(long writeDelay){
+		this.writeDelay = writeDelay;
+	}
+
+	/**
+	 * Records the start of a new track.
+	 * @param format The format of the track.
+	 */
+	public synchronized void open(AudioFormat format){
+		this.format = format;
+		tracks++;
+	}
+
+	/**
+	 * Counts a block of data, waiting first if a write delay was given.
+	 * @param buffer The buffer holding the data.
+	 * @param offset The position of the first byte.
+	 * @param length The number of bytes written.
+	 */
+	public void write(byte[] buffer, int offset, int length){
+		if (writeDelay > 0){
+			try {
+				Thread.sleep(writeDelay);
+			} catch (InterruptedException e){
+				Thread.currentThread().interrupt();
+			}
+		}
+		synchronized (this){
+			bytes += length;
+		}
+	}
+
+	/**
+	 * Records a track that finished normally.
+	 */
+	public synchronized void drain(){
+		drained++;
+	}
+
+	/**
+	 * Records a track that was stopped or skipped.
+	 */
+	public synchronized void flush(){
+		flushed++;
+	}
+
+	/**
+	 * Nothing is held between tracks so there is nothing to release.
+	 */
+	public void close(){
+	}
+
+	/**
+	 * Returns the number of bytes written over every track.
+	 * @return The number of bytes.
+	 */
+	public synchronized long bytes(){
+		return bytes;
+	}
+
+	/**
+	 * Returns the number of tracks that have been opened.
+	 * @return The number of tracks.
+	 */
+	public synchronized int tracks(){
+		return tracks;
+	}
+
+	/**
+	 * Returns the number of tracks that played to the end.
+	 * @return The number of finished tracks.
+	 */
+	public synchronized int drained(){
+		return drained;
+	}
+
+	/**
+	 * Returns the number of tracks that were stopped or skipped.
+	 * @return The number of interrupted tracks.
+	 */
+	public synchronized int flushed(){
+		return flushed;
+	}
+
+	/**
+	 * Returns the format of the last track opened.
+	 * @return The audio format.
+	 */
+	public synchronized AudioFormat format(){
+		return format;
+	}
+}
@@ -0,0 +1,79 @@
+import javax.sound.midi.Sequence;
+import javax.sound.sampled.AudioFormat;
+
+/**
+ * Class that holds a sound file after it has been decoded. Sampled sounds (.wav)
+ * are kept as raw PCM data along with their format while MIDI sounds (.mid) are
+ * kept as a parsed sequence. Only one of the two forms is ever set.
+ */
+public class DecodedSound {
+	//The format of the PCM data (null for MIDI sounds).
+	private AudioFormat format;
+	//The decoded PCM data (null for MIDI sounds).
+	private byte[] data;
+	//The parsed MIDI sequence (null for sampled sounds).
+	private Sequence sequence;
+	//The approximate number of bytes this sound occupies in memory.
+	private long size;
+
+	/**
+	 * Constructor for a sampled sound that has been decoded to PCM.
+	 * @param format The format of the PCM data.
+	 * @param data The PCM data itself.
+	 */
+	public DecodedSound(AudioFormat format, byte[] data){
+		this.format = format;
+		this.data = data;
+		this.size = data.length;
+	}
+
+	/**
+	 * Constructor for a MIDI sound that has been parsed into a sequence.
+	 * @param sequence The parsed MIDI sequence.
+	 * @param size The size of the MIDI file the sequence was parsed from.
+	 */
+	public DecodedSound(Sequence sequence, long size){
+		this.sequence = sequence;
+		this.size = size;
+	}
+
+	/**
+	 * Returns whether this sound is a MIDI sequence or sampled audio.
+	 * @return True if the sound is a MIDI sequence.
+	 */
+	public boolean isMidi(){
+		return sequence != null;
+	}
+
+	/**
+	 * Returns the format of the decoded PCM data.
+	 * @return The audio format, or null for MIDI sounds.
+	 */
+	public AudioFormat format(){
+		return format;
+	}
+
+	/**
+	 * Returns the decoded PCM data.
+	 * @return The PCM data, or null for MIDI sounds.
+	 */
+	public byte[] data(){
+		return data;
+	}
+
+	/**
+	 * Returns the parsed MIDI sequence.
+	 * @return The MIDI sequence, or null for sampled sounds.
+	 */
+	public Sequence sequence(){
+		return sequence;
+	}
+
+	/**
+	 * Returns the approximate amount of memory held by this sound.
+	 * @return The size in bytes.
+	 */
+	public long size(){
+		return size;
+	}
+}
@@ -0,0 +1,57 @@
+/**
+ * Class that holds what a picture's header says about it: its size and how many
+ * frames it has. Reading the header once lets the thumbnail, the decoded size and
+ * the full decode all be worked out without opening the file again to learn them.
+ */
+public class ImageHeader {
+	//The width of the picture in pixels.
+	private int width;
+	//The height of the picture in pixels.
+	private int height;
+	//The number of frames in the picture (more than one for an animated GIF).
+	private int frames;
+
+	/**
+	 * Constructor that records what was read from a picture's header.
+	 * @param width The width of the picture.
+	 * @param height The height of the picture.
+	 * @param frames The number of frames in the picture.
+	 */
+	public ImageHeader(int width, int height, int frames){
+		this.width = width;
+		this.height = height;
+		this.frames = frames;
+	}
+
+	/**
+	 * Returns the width of the picture.
+	 * @return The width in pixels.
+	 */
+	public int width(){
+		return width;
+	}
+
+	/**
+	 * Returns the height of the picture.
+	 * @return The height in pixels.
+	 */
+	public int height(){
+		return height;
+	}
+
+	/**
+	 * Returns the number of frames in the picture.
+	 * @return The number of frames.
+	 */
+	public int frames(){
+		return frames;
+	}
+
+	/**
+	 * Returns whether the picture has more than one frame (an animated GIF).
+	 * @return True if the picture is animated.
+	 */
+	public boolean isAnimated(){
+		return frames > 1;
+	}
+}
@@ -0,0 +1,230 @@
+import java.awt.Dimension;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.*;
+import java.net.URL;
+import java.util.Iterator;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+
+/**
+ * Class that decodes pictures straight to the size they will be shown at. Large
+ * pictures are subsampled by the image reader while they are decoded, so only the
+ * pixels that are needed are ever produced. Everything here works without a display,
+ * which lets the decode speed be measured on a build machine.
+ */
+public class ImageLoader {
+	//How much smaller a thumbnail is than the target size.
+	public static final int THUMBNAIL_DIVISOR = 8;
+
+	/**
+	 * Decodes a picture so that it fits within the given size.
+	 * @param source The location of the picture.
+	 * @param maxWidth The largest width wanted.
+	 * @param maxHeight The largest height wanted.
+	 * @return The decoded picture.
+	 * @throws IOException If the picture cannot be read.
+	 */
+	public static BufferedImage decode(URL source, int maxWidth, int maxHeight) throws IOException {
+		return decode(source, null, null, maxWidth, maxHeight);
+	}
+
+	/**
+	 * Decodes a picture whose header has already been read so that it fits within the
+	 * given size.
+	 * @param source The location of the picture.
+	 * @param header The picture's header (see readHeader).
+	 * @param maxWidth The largest width wanted.
+	 * @param maxHeight The largest height wanted.
+	 * @return The decoded picture.
+	 * @throws IOException If the picture cannot be read.
+	 */
+	public static BufferedImage decode(URL source, ImageHeader header, int maxWidth, int maxHeight)
+			throws IOException {
+		return decode(source, header, null, maxWidth, maxHeight);
+	}
+
+	/**
+	 * Decodes part of a picture so that it fits within the given size.
+	 * @param source The location of the picture.
+	 * @param region The part of the picture to decode, or null for all of it.
+	 * @param maxWidth The largest width wanted.
+	 * @param maxHeight The largest height wanted.
+	 * @return The decoded picture.
+	 * @throws IOException If the picture cannot be read.
+	 */
+	public static BufferedImage decode(URL source, Rectangle region, int maxWidth, int maxHeight)
+			throws IOException {
+		return decode(source, null, region, maxWidth, maxHeight);
+	}
+
+	/**
+	 * Decodes part of a picture so that it fits within the given size.
+	 * @param source The location of the picture.
+	 * @param header The picture's header, or null to learn its size from the file.
+	 * @param region The part of the picture to decode, or null for all of it.
+	 * @param maxWidth The largest width wanted.
+	 * @param maxHeight The largest height wanted.
+	 * @return The decoded picture.
+	 * @throws IOException If the picture cannot be read.
+	 */
+	public static BufferedImage decode(URL source, ImageHeader header, Rectangle region, int maxWidth,
+			int maxHeight) throws IOException {
+		//Closing the image stream doesn't close the file under it, so both are closed.
+		InputStream in = source.openStream();
+		try {
+			ImageInputStream input = ImageIO.createImageInputStream(in);
+			if (input == null) throw new IOException("Cannot read " + source);
+
+			try {
+				//Finds a reader that understands the picture's format.
+				Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+				if (!readers.hasNext()) throw new IOException("Unknown image format " + source);
+				ImageReader reader = readers.next();
+
+				try {
+					//Only the first image is read so the metadata can be skipped.
+					reader.setInput(input, true, true);
+					ImageReadParam param = reader.getDefaultReadParam();
+
+					//Works out how much of the picture is being decoded.
+					int width = (header != null) ? header.width() : reader.getWidth(0);
+					int height = (header != null) ? header.height() : reader.getHeight(0);
+					if (region != null){
+						region = region.intersection(new Rectangle(0, 0, width, height));
+						param.setSourceRegion(region);
+						width = region.width;
+						height = region.height;
+					}
+
+					//Skips pixels so the result is no larger than what was asked for.
+					int step = subsampling(width, height, maxWidth, maxHeight);
+					param.setSourceSubsampling(step, step, 0, 0);
+					return reader.read(0, param);
+				} finally {
+					reader.dispose();
+				}
+			} finally {
+				input.close();
+			}
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Decodes a small, rough version of a picture. Meant to be shown while the full
+	 * picture is still being decoded.
+	 * @param source The location of the picture.
+	 * @param header The picture's header (see readHeader).
+	 * @param maxWidth The largest width of the full picture.
+	 * @param maxHeight The largest height of the full picture.
+	 * @return The decoded thumbnail.
+	 * @throws IOException If the picture cannot be read.
+	 */
+	public static BufferedImage thumbnail(URL source, ImageHeader header, int maxWidth, int maxHeight)
+			throws IOException {
+		return decode(source, header, Math.max(1, maxWidth / THUMBNAIL_DIVISOR),
+				Math.max(1, maxHeight / THUMBNAIL_DIVISOR));
+	}
+
+	/**
+	 * Reads a picture's header with a single reader: its size and, for a GIF, how many
+	 * frames it has. Other formats are taken to have one frame.
+	 * @param source The location of the picture.
+	 * @return The picture's header.
+	 * @throws IOException If the picture cannot be read.
+	 */
+	public static ImageHeader readHeader(URL source) throws IOException {
+		InputStream in = source.openStream();
+		try {
+			ImageInputStream input = ImageIO.createImageInputStream(in);
+			if (input == null) throw new IOException("Cannot read " + source);
+			try {
+				Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+				if (!readers.hasNext()) throw new IOException("Unknown image format " + source);
+				ImageReader reader = readers.next();
+				try {
+					//Counting frames means going back to the start, so seeking is allowed.
+					reader.setInput(input, false, true);
+					int width = reader.getWidth(0);
+					int height = reader.getHeight(0);
+
+					//Only GIFs are ever animated, and only they are scanned for frames.
+					int frames = 1;
+					if (reader.getFormatName().equalsIgnoreCase("gif")){
+						frames = reader.getNumImages(true);
+					}
+					return new ImageHeader(width, height, frames);
+				} finally {
+					reader.dispose();
+				}
+			} finally {
+				input.close();
+			}
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Works out the size a picture will have once it has been decoded to fit within
+	 * the given size. The file isn't read again.
+	 * @param header The picture's header (see readHeader).
+	 * @param maxWidth The largest width wanted.
+	 * @param maxHeight The largest height wanted.
+	 * @return The size of the decoded picture.
+	 */
+	public static Dimension decodedSize(ImageHeader header, int maxWidth, int maxHeight){
+		int step = subsampling(header.width(), header.height(), maxWidth, maxHeight);
+		return new Dimension((header.width() + step - 1) / step, (header.height() + step - 1) / step);
+	}
+
+	/**
+	 * Stretches a picture to a new size. Meant for blowing a thumbnail up to the size
+	 * of the full picture, so speed is preferred over quality.
+	 * @param image The picture to stretch.
+	 * @param width The new width.
+	 * @param height The new height.
+	 * @return The stretched picture.
+	 */
+	public static BufferedImage scale(BufferedImage image, int width, int height){
+		BufferedImage scaled = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+		Graphics2D g = scaled.createGraphics();
+		g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+		g.drawImage(image, 0, 0, width, height, null);
+		g.dispose();
+		return scaled;
+	}
+
+	/**
+	 * Sees if a picture has more than one frame (an animated GIF). Only GIFs are opened.
+	 * @param source The location of the picture.
+	 * @return True if the picture is animated.
+	 * @throws IOException If the picture cannot be read.
+	 */
+	public static boolean isAnimated(URL source) throws IOException {
+		//Only GIFs are ever animated.
+		if (!source.getPath().toLowerCase().endsWith(".gif")) return false;
+		return readHeader(source).isAnimated();
+	}
+
+	/**
+	 * Works out the smallest whole number of pixels to step over so that a picture
+	 * fits within the given size.
+	 * @param width The width of the picture.
+	 * @param height The height of the picture.
+	 * @param maxWidth The largest width wanted.
+	 * @param maxHeight The largest height wanted.
+	 * @return The subsampling step (1 means every pixel is kept).
+	 */
+	public static int subsampling(int width, int height, int maxWidth, int maxHeight){
+		int stepX = (int) ((width + (long) maxWidth - 1) / maxWidth);
+		int stepY = (int) ((height + (long) maxHeight - 1) / maxHeight);
+		return Math.max(1, Math.max(stepX, stepY));
+	}
+}
@@ -0,0 +1,59 @@
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.SourceDataLine;
+
+/**
+ * Audio sink that sends the PCM data to the speakers through a source data line.
+ */
+public class LineSink implements AudioSink {
+	//The line that is currently open (null between tracks).
+	private SourceDataLine line;
+
+	/**
+	 * Opens a line for the format of the next track and starts it.
+	 * @param format The format of the PCM data.
+	 */
+	public void open(AudioFormat format) throws MultimediaException {
+		try {
+			line = AudioSystem.getSourceDataLine(format);
+			line.open(format);
+			line.start();
+		} catch (Exception e){
+			line = null;
+			throw new MultimediaException("Error opening audio line for " + format);
+		}
+	}
+
+	/**
+	 * Writes a block of data to the line, blocking until the line has room for it.
+	 * @param buffer The buffer holding the data.
+	 * @param offset The position of the first byte.
+	 * @param length The number of bytes to write.
+	 */
+	public void write(byte[] buffer, int offset, int length){
+		line.write(buffer, offset, length);
+	}
+
+	/**
+	 * Waits for the line to play everything written to it.
+	 */
+	public void drain(){
+		line.drain();
+	}
+
+	/**
+	 * Discards everything that the line has not played yet.
+	 */
+	public void flush(){
+		line.stop();
+		line.flush();
+	}
+
+	/**
+	 * Closes the line.
+	 */
+	public void close(){
+		if (line != null) line.close();
+		line = null;
+	}
+}
@@ -0,0 +1,371 @@
+import java.io.*;
+import java.net.URL;
+import java.util.*;
+import java.util.concurrent.*;
+import javax.sound.midi.MidiSystem;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import java.awt.Dimension;
+import java.awt.Image;
+import javax.swing.ImageIcon;
+
+/**
+ * Class that holds decoded pictures and sounds so that repeated lookups of the same
+ * definition do not have to read and decode the file again. Entries are keyed by the
+ * definition path, evicted in least recently used order once the byte budget is
+ * exceeded and dropped whenever the file's modification time changes. The cache is
+ * safe to use from several threads and a file that is already being decoded by one
+ * thread is waited on by the others rather than decoded twice.
+ */
+public class MediaCache {
+	//The default number of bytes of decoded media that can be held.
+	public static final long DEFAULT_BUDGET = 64L * 1024 * 1024;
+
+	//The cache shared by the picture viewer and sound player.
+	private static MediaCache shared;
+
+	//The cached entries in access order (least recently used first).
+	private LinkedHashMap<String, CacheEntry> entries;
+	//The maximum number of bytes that can be held.
+	private long budget;
+	//The number of bytes currently held.
+	private long usedBytes;
+	//The decodes that are currently in progress.
+	private HashMap<String, FutureTask<Object>> pending;
+
+	/**
+	 * Constructor that creates an empty cache with the given byte budget.
+	 * @param budget The maximum number of bytes of decoded media to hold.
+	 */
+	public MediaCache(long budget){
+		this.budget = budget;
+		this.usedBytes = 0;
+		this.entries = new LinkedHashMap<String, CacheEntry>(16, 0.75f, true);
+		this.pending = new HashMap<String, FutureTask<Object>>();
+	}
+
+	/**
+	 * Gets the cache that is shared between all the media players.
+	 * @return The shared media cache.
+	 */
+	public static synchronized MediaCache getShared(){
+		//Creates the shared cache the first time it is asked for.
+		if (shared == null){
+			shared = new MediaCache(DEFAULT_BUDGET);
+		}
+		return shared;
+	}
+
+	/**
+	 * Gets the decoded picture for a definition. The picture is looked up the same
+	 * way as the viewer does, relative to the classpath, and is decoded to fit the
+	 * viewer's target size. Animated pictures are kept whole so they still animate.
+	 * @param fileName The definition path of the picture.
+	 * @return The decoded picture.
+	 * @throws MultimediaException If the picture cannot be found or decoded.
+	 */
+	public Image getImage(String fileName) throws MultimediaException {
+		return getImage(fileName, null);
+	}
+
+	/**
+	 * Gets the decoded picture for a definition whose header has already been read,
+	 * so decoding it doesn't have to open the file to learn its size and frames.
+	 * @param fileName The definition path of the picture.
+	 * @param header The picture's header (see ImageLoader.readHeader), or null if it
+	 * hasn't been read.
+	 * @return The decoded picture.
+	 * @throws MultimediaException If the picture cannot be found or decoded.
+	 */
+	public Image getImage(String fileName, final ImageHeader header) throws MultimediaException {
+		//Finds where the picture is located.
+		URL location = PictureViewer.class.getResource(fileName);
+		if (location == null) throw new MultimediaException("Error opening image file " + fileName);
+		long modified = lastModified(location);
+
+		//Gets the picture from the cache, decoding it if necessary.
+		final URL source = location;
+		final Dimension target = PictureViewer.targetSize();
+		return (Image) load(imageKey(fileName, target), modified, new Callable<Object>(){
+			public Object call() throws Exception {
+				boolean animated = (header != null) ? header.isAnimated() : ImageLoader.isAnimated(source);
+				if (animated){
+					ImageIcon icon = new ImageIcon(source);
+					if (icon.getIconWidth() <= 0) throw new IOException("Cannot decode " + source);
+					return icon.getImage();
+				}
+				return ImageLoader.decode(source, header, target.width, target.height);
+			}
+		}, "Error opening image file " + fileName);
+	}
+
+	/**
+	 * Gets the decoded picture for a definition only if it is already in the cache.
+	 * Never decodes the file.
+	 * @param fileName The definition path of the picture.
+	 * @return The decoded picture, or null if it is not cached or is out of date.
+	 */
+	public Image peekImage(String fileName){
+		URL location = PictureViewer.class.getResource(fileName);
+		if (location == null) return null;
+		return (Image) lookup(imageKey(fileName, PictureViewer.targetSize()), lastModified(location));
+	}
+
+	/**
+	 * Gets the decoded sound for a definition.
+	 * @param fileName The definition path of the sound.
+	 * @return The decoded sound.
+	 * @throws MultimediaException If the sound cannot be found or decoded.
+	 */
+	public DecodedSound getSound(String fileName) throws MultimediaException {
+		//Finds the sound file on disk.
+		File file = new File(fileName);
+		if (!file.isFile()) throw new MultimediaException("Error playing sound file " + fileName);
+		long modified = file.lastModified();
+
+		//Gets the sound from the cache, decoding it if necessary.
+		final File source = file;
+		return (DecodedSound) load("sound:" + fileName, modified, new Callable<Object>(){
+			public Object call() throws Exception {
+				return decodeSound(source);
+			}
+		}, "Error playing sound file " + fileName);
+	}
+
+	/**
+	 * Gets the decoded sound for a definition only if it is already in the cache.
+	 * Never reads or decodes the file.
+	 * @param fileName The definition path of the sound.
+	 * @return The decoded sound, or null if it is not cached or is out of date.
+	 */
+	public DecodedSound peekSound(String fileName){
+		return (DecodedSound) lookup("sound:" + fileName, new File(fileName).lastModified());
+	}
+
+	/**
+	 * Removes every entry from the cache.
+	 */
+	public synchronized void clear(){
+		entries.clear();
+		usedBytes = 0;
+	}
+
+	/**
+	 * Returns the number of bytes currently held by the cache.
+	 * @return The number of bytes held.
+	 */
+	public synchronized long usedBytes(){
+		return usedBytes;
+	}
+
+	/**
+	 * Returns the number of entries currently held by the cache.
+	 * @return The number of entries.
+	 */
+	public synchronized int size(){
+		return entries.size();
+	}
+
+	/**
+	 * Helper method that returns a cached entry or decodes it. If another thread is
+	 * already decoding the same entry, this waits for that decode to finish instead.
+	 * @param key The key of the entry.
+	 * @param modified The current modification time of the file.
+	 * @param decoder The task that decodes the file.
+	 * @param error The message used if the file cannot be decoded.
+	 * @return The decoded media.
+	 * @throws MultimediaException If the file cannot be decoded.
+	 */
+	private Object load(String key, long modified, Callable<Object> decoder, String error)
+			throws MultimediaException {
+		//Tries twice so that a waiter can take over a decode that was interrupted.
+		for (int attempt = 0; attempt < 2; attempt++){
+			FutureTask<Object> task;
+			boolean owner = false;
+
+			//Either finds the entry, joins a decode in progress or starts a new one.
+			synchronized (this){
+				Object cached = lookup(key, modified);
+				if (cached != null) return cached;
+
+				task = pending.get(key);
+				if (task == null){
+					task = new FutureTask<Object>(decoder);
+					pending.put(key, task);
+					owner = true;
+				}
+			}
+
+			//The thread that started the decode is the one that runs it.
+			if (owner) task.run();
+
+			try {
+				Object media = task.get();
+				if (owner) store(key, media, sizeOf(media), modified);
+				return media;
+			} catch (InterruptedException e){
+				Thread.currentThread().interrupt();
+				throw new MultimediaException(error);
+			} catch (Exception e){
+				//A decode that failed for its owner really failed.
+				if (owner) throw new MultimediaException(error);
+			} finally {
+				if (owner){
+					synchronized (this){
+						pending.remove(key);
+					}
+				}
+			}
+		}
+		throw new MultimediaException(error);
+	}
+
+	/**
+	 * Helper method that builds the key for a picture decoded to a given size.
+	 * @param fileName The definition path of the picture.
+	 * @param target The size the picture was decoded to fit.
+	 * @return The key of the entry.
+	 */
+	private static String imageKey(String fileName, Dimension target){
+		return "image:" + fileName + "@" + target.width + "x" + target.height;
+	}
+
+	/**
+	 * Helper method that finds an entry and checks that it is still up to date.
+	 * @param key The key of the entry.
+	 * @param modified The current modification time of the file.
+	 * @return The decoded media, or null if it is not held or is stale.
+	 */
+	private synchronized Object lookup(String key, long modified){
+		CacheEntry entry = entries.get(key);
+		if (entry == null) return null;
+
+		//The file has changed since it was decoded so the entry is dropped.
+		if (entry.modified != modified){
+			entries.remove(key);
+			usedBytes -= entry.size;
+			return null;
+		}
+		return entry.media;
+	}
+
+	/**
+	 * Helper method that stores a decoded entry and evicts the least recently used
+	 * entries until the cache is back within its budget.
+	 * @param key The key of the entry.
+	 * @param media The decoded media.
+	 * @param size The number of bytes the media occupies.
+	 * @param modified The modification time of the file it was decoded from.
+	 */
+	private synchronized void store(String key, Object media, long size, long modified){
+		//Media larger than the entire budget is never held.
+		if (size > budget) return;
+
+		//Replaces any previous entry for this key.
+		CacheEntry old = entries.put(key, new CacheEntry(media, size, modified));
+		if (old != null) usedBytes -= old.size;
+		usedBytes += size;
+
+		//Evicts from the least recently used end.
+		Iterator<CacheEntry> it = entries.values().iterator();
+		while (usedBytes > budget && it.hasNext()){
+			CacheEntry victim = it.next();
+			usedBytes -= victim.size;
+			it.remove();
+		}
+	}
+
+	/**
+	 * Helper method that gets the number of bytes a decoded item occupies.
+	 * @param media The decoded picture or sound.
+	 * @return The size of the item in bytes.
+	 */
+	private static long sizeOf(Object media){
+		if (media instanceof DecodedSound) return ((DecodedSound) media).size();
+		Image image = (Image) media;
+		return 4L * image.getWidth(null) * image.getHeight(null);
+	}
+
+	/**
+	 * Helper method that decodes a sound file. MIDI files are parsed into a sequence and
+	 * every other file is decoded into signed PCM.
+	 * @param file The sound file.
+	 * @return The decoded sound.
+	 * @throws MultimediaException If the file cannot be decoded.
+	 */
+	private static DecodedSound decodeSound(File file) throws MultimediaException {
+		try {
+			//MIDI files are not sampled audio so they are kept as a sequence.
+			if (file.getName().toLowerCase().endsWith(".mid")){
+				return new DecodedSound(MidiSystem.getSequence(file), file.length());
+			}
+
+			//Decodes the file as PCM.
+			AudioInputStream stream = pcmStream(file);
+			AudioFormat format = stream.getFormat();
+
+			//Reads every sample into memory.
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			byte[] buffer = new byte[8192];
+			int read;
+			while ((read = stream.read(buffer)) != -1){
+				out.write(buffer, 0, read);
+			}
+			stream.close();
+			return new DecodedSound(format, out.toByteArray());
+		} catch (Exception e){
+			throw new MultimediaException("Error playing sound file " + file.getPath());
+		}
+	}
+
+	/**
+	 * Opens a sampled sound file as a stream of PCM data, converting it if it is
+	 * stored in another encoding.
+	 * @param file The sound file.
+	 * @return The PCM stream.
+	 * @throws Exception If the file cannot be read or converted.
+	 */
+	static AudioInputStream pcmStream(File file) throws Exception {
+		AudioInputStream stream = AudioSystem.getAudioInputStream(file);
+		AudioFormat format = stream.getFormat();
+		if (format.getEncoding() != AudioFormat.Encoding.PCM_SIGNED &&
+				format.getEncoding() != AudioFormat.Encoding.PCM_UNSIGNED){
+			format = new AudioFormat(AudioFormat.Encoding.PCM_SIGNED, format.getSampleRate(), 16,
+					format.getChannels(), format.getChannels() * 2, format.getSampleRate(), false);
+			stream = AudioSystem.getAudioInputStream(format, stream);
+		}
+		return stream;
+	}
+
+	/**
+	 * Helper method that gets the modification time of a resource. Resources that are
+	 * not plain files (such as those inside a jar) never change.
+	 * @param location The location of the resource.
+	 * @return The modification time of the resource.
+	 */
+	private static long lastModified(URL location){
+		if (!location.getProtocol().equals("file")) return 0;
+		try {
+			return new File(location.toURI()).lastModified();
+		} catch (Exception e){
+			return 0;
+		}
+	}
+
+	/**
+	 * Class that holds a single decoded item along with its size and the
+	 * modification time of the file it came from.
+	 */
+	private static class CacheEntry {
+		private Object media;
+		private long size;
+		private long modified;
+
+		public CacheEntry(Object media, long size, long modified){
+			this.media = media;
+			this.size = size;
+			this.modified = modified;
+		}
+	}
+}
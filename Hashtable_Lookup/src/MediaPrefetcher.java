@@ -0,0 +1,98 @@
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Class that decodes pictures and sounds in the background so that they are already
+ * in the media cache by the time the user asks for them. Uses a small bounded pool of
+ * daemon threads and cancels any prefetch that is no longer wanted once the user
+ * moves to a different part of the dictionary. A prefetch that has already started
+ * is left to finish, since a define may be waiting on the same decode.
+ */
+public class MediaPrefetcher {
+	//The number of threads that decode media in the background.
+	private static final int THREADS = 2;
+	//The number of prefetches that can wait for a free thread.
+	private static final int QUEUE_SIZE = 4;
+
+	//The cache the decoded media is placed in.
+	private MediaCache cache;
+	//The pool that runs the prefetches.
+	private ThreadPoolExecutor executor;
+	//The prefetches that have been requested, keyed by definition path.
+	private HashMap<String, Future<?>> requested;
+
+	/**
+	 * Constructor that sets up the background threads.
+	 * @param cache The cache that decoded media is placed in.
+	 */
+	public MediaPrefetcher(MediaCache cache){
+		this.cache = cache;
+		this.requested = new HashMap<String, Future<?>>();
+
+		//The oldest waiting prefetch is cancelled when the queue fills up.
+		this.executor = new ThreadPoolExecutor(THREADS, THREADS, 30, TimeUnit.SECONDS,
+				new ArrayBlockingQueue<Runnable>(QUEUE_SIZE), new ThreadFactory(){
+					public Thread newThread(Runnable r){
+						Thread thread = new Thread(r, "media-prefetch");
+						thread.setDaemon(true);
+						return thread;
+					}
+				}, new RejectedExecutionHandler(){
+					public void rejectedExecution(Runnable r, ThreadPoolExecutor pool){
+						Runnable oldest = pool.getQueue().poll();
+						if (oldest instanceof Future) ((Future<?>) oldest).cancel(false);
+						pool.execute(r);
+					}
+				});
+		this.executor.allowCoreThreadTimeOut(true);
+	}
+
+	/**
+	 * Requests that a set of media definitions be decoded in the background. Any
+	 * earlier prefetch that is not part of the new set is cancelled.
+	 * @param media The definition paths mapped to their types (2 for sound, 3 for picture).
+	 */
+	public synchronized void prefetch(Map<String, Integer> media){
+		//Cancels the prefetches that are no longer wanted. Running ones are not interrupted
+		//because the media cache shares a decode with every thread that asks for it.
+		Iterator<Map.Entry<String, Future<?>>> it = requested.entrySet().iterator();
+		while (it.hasNext()){
+			Map.Entry<String, Future<?>> entry = it.next();
+			if (!media.containsKey(entry.getKey()) || entry.getValue().isDone()){
+				entry.getValue().cancel(false);
+				it.remove();
+			}
+		}
+
+		//Submits the new prefetches.
+		for (Map.Entry<String, Integer> entry : media.entrySet()){
+			final String path = entry.getKey();
+			final int type = entry.getValue();
+			if ((type != 2 && type != 3) || requested.containsKey(path)) continue;
+
+			requested.put(path, executor.submit(new Runnable(){
+				public void run(){
+					try {
+						if (type == 2){
+							cache.getSound(path);
+						} else {
+							cache.getImage(path);
+						}
+					} catch (MultimediaException e){
+						//The error is reported when the user asks for the media itself.
+					}
+				}
+			}));
+		}
+	}
+
+	/**
+	 * Cancels every prefetch that has not started yet.
+	 */
+	public synchronized void cancelAll(){
+		for (Future<?> future : requested.values()){
+			future.cancel(false);
+		}
+		requested.clear();
+	}
+}
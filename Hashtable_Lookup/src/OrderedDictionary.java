@@ -1,18 +1,40 @@
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
 /**
  * Class that represents the dictionary in a binary tree format. Contains functions to
  * find words, types and get parents. All the public classes are at the top while the
- * private classes are at the bottom.
+ * private classes are at the bottom. Alongside the tree, ordered indexes of the words
+ * of each type and of each file extension are kept so they can be listed directly.
  * @author Bryan J. Muscedere
  */
 public class OrderedDictionary implements OrderedDictionaryADT{
+	//How many levels of the tree are split up between threads when listing in parallel.
+	private static final int PARALLEL_DEPTH =
+			32 - Integer.numberOfLeadingZeros(Runtime.getRuntime().availableProcessors()) + 4;
+	//The pool that lists words in parallel.
+	private static final ForkJoinPool POOL = new ForkJoinPool();
+	
 	//The root of the tree.
 	private Node<DictEntry> root;
+	//The words of each type (1 for text, 2 for sound, 3 for picture), in order.
+	private List<TreeSet<String>> typeIndex;
+	//The words of each file extension, in order.
+	private HashMap<String, TreeSet<String>> extensionIndex;
 
 	/**
 	 * Constructor class that initalizes the dictionary. Sets the root to null.
 	 */
 	public OrderedDictionary(){
 		root = null;
+		
+		//Creates an empty index for each type (index 0 is not a type and stays empty).
+		typeIndex = new ArrayList<TreeSet<String>>();
+		for (int i = 0; i < 4; i++){
+			typeIndex.add(new TreeSet<String>());
+		}
+		extensionIndex = new HashMap<String, TreeSet<String>>();
 	}
 	
 	/**
@@ -84,8 +106,10 @@ public class OrderedDictionary implements OrderedDictionaryADT{
 			root.setLeft(new Node<DictEntry>(null));
 			root.setRight(new Node<DictEntry>(null));
 			
-			//Sets the parent to null.
+			//Sets the parent to null, and the root as the parent of its two children.
 			root.setParent(null);
+			root.getLeft().setParent(root);
+			root.getRight().setParent(root);
 		} else {
 			//Calls the recursive function tree insert.
 			Node<DictEntry> tempNode = recursiveFind(root, element.word());
@@ -102,6 +126,9 @@ public class OrderedDictionary implements OrderedDictionaryADT{
 			tempNode.getLeft().setParent(tempNode);
 			tempNode.getRight().setParent(tempNode);
 		}
+		
+		//Adds the word to the secondary indexes.
+		index(element, true);
 	}
 	
 	/**
@@ -111,12 +138,18 @@ public class OrderedDictionary implements OrderedDictionaryADT{
 	 * @param word The word that is desired to be removed.
 	 */
 	public void remove(String word) throws DictionaryException {
+		//Nothing can be removed from an empty tree.
+		if (root == null) throw new DictionaryException("is not present.");
+		
 		//Creates a new empty node and sees if it's present in the dictionary.
 		Node<DictEntry> temp = recursiveFind(root, word);
 		
 		//If it isn't, throws an exception.
 		if (temp.getElement() == null) throw new DictionaryException("is not present.");
 		
+		//Takes the word out of the secondary indexes.
+		index(temp.getElement(), false);
+		
 		//Determines the way to remove the element
 		if ((temp.getLeft().getElement() == null) || (temp.getRight().getElement() == null)){
 			//This node has at least one leaf node. We can remove at external.
@@ -133,6 +166,9 @@ public class OrderedDictionary implements OrderedDictionaryADT{
 	 * @return The successor to this word or prefix.
 	 */
 	public String successor(String word) {
+		//An empty tree has no successors.
+		if (root == null) return "";
+		
 		//Finds the position of where the current word is in the array. If a prefix an empty node is found.
 		Node<DictEntry> successorNode = recursiveFind(root, word);
 		Node<DictEntry> tempNode = null;
@@ -142,20 +178,13 @@ public class OrderedDictionary implements OrderedDictionaryADT{
 			//If it is, it gets the parent node.
 			tempNode = successorNode.getParent();
 			
-			//Moves up the parent node until the correct successor element is found.
-			while (tempNode.getParent() != null){
-				//Sees if the parent node is greater than the current node.
-				if (word.compareTo(tempNode.getElement().word()) <= 0){
-					//Exits the loop if it is.
-					break;
-				}
-			
-				//Otherwise, gets the next parent.
+			//Moves up the parent nodes until one greater than the word is found.
+			while ((tempNode != null) && (word.compareTo(tempNode.getElement().word()) >= 0)){
 				tempNode = tempNode.getParent();
 			}
 			
-			//Sees if it is the greatest element in the tree.
-			if (word.compareTo(tempNode.getElement().word()) > 0){
+			//Going past the root means it is the greatest element in the tree.
+			if (tempNode == null){
 				tempNode = new Node<DictEntry>(null);
 			}
 		} else {
@@ -182,6 +211,9 @@ public class OrderedDictionary implements OrderedDictionaryADT{
 	 * @return The predecessor of the word or prefix.
 	 */
 	public String predecessor(String word) {
+		//An empty tree has no predecessors.
+		if (root == null) return "";
+		
 		//Finds the position of the current word/prefix in the tree.
 		Node<DictEntry> predecessorNode = recursiveFind(root, word);
 		Node<DictEntry> tempNode = null;
@@ -192,20 +224,12 @@ public class OrderedDictionary implements OrderedDictionaryADT{
 			tempNode = predecessorNode.getParent();
 			
 			//Loops until either the parent node is null or a smaller element than the word is found.
-			while (tempNode.getParent() != null){
-				//Sees if the element is smaller than the word being searched for.
-				if (word.compareTo(tempNode.getElement().word()) >= 0){
-					//Breaks from the loop. 
-					break;
-				}
-				
-				//Sets the temp node to be the parent node.
+			while ((tempNode != null) && (word.compareTo(tempNode.getElement().word()) <= 0)){
 				tempNode = tempNode.getParent();
 			}
 			
-			//Sees if the current node is the smallest in the tree.
-			if (word.compareTo(tempNode.getElement().word()) < 0){
-				//Sets it to null if it is.
+			//Going past the root means it is the smallest element in the tree.
+			if (tempNode == null){
 				tempNode = new Node<DictEntry>(null);
 			}
 		} else {
@@ -225,6 +249,122 @@ public class OrderedDictionary implements OrderedDictionaryADT{
 		return tempNode.getElement().word();
 	}
 
+	/**
+	 * Gets the words of a certain type that begin with a prefix, in order. Goes straight
+	 * to the index for that type rather than searching the whole tree.
+	 * @param type The type of the words (1 for text, 2 for sound, 3 for picture).
+	 * @param prefix The prefix the words begin with (the empty string for all of them).
+	 * @return The matching words, not counting a word equal to the prefix itself.
+	 */
+	public SortedSet<String> wordsOfType(int type, String prefix){
+		//Unknown types have no words.
+		if (type < 1 || type >= typeIndex.size()) return new TreeSet<String>();
+		return withPrefix(typeIndex.get(type), prefix);
+	}
+	
+	/**
+	 * Gets the words whose definitions have a certain file extension that begin with a
+	 * prefix, in order.
+	 * @param extension The file extension, without the '.'.
+	 * @param prefix The prefix the words begin with (the empty string for all of them).
+	 * @return The matching words, not counting a word equal to the prefix itself.
+	 */
+	public SortedSet<String> wordsWithExtension(String extension, String prefix){
+		TreeSet<String> words = extensionIndex.get(extension.toLowerCase());
+		if (words == null) return new TreeSet<String>();
+		return withPrefix(words, prefix);
+	}
+	
+	/**
+	 * Lists every word beginning with a prefix, formatted as each word followed by a tab.
+	 * The part of the tree holding the matching words is split into subtrees that are
+	 * walked in parallel, each into its own buffer. Printing the buffers in the order
+	 * they are returned gives the words in order.
+	 * @param prefix The prefix the words begin with (the empty string for all of them).
+	 * @return The formatted words in order, split across several buffers.
+	 */
+	public List<StringBuilder> listPrefix(String prefix){
+		if (root == null) return new ArrayList<StringBuilder>();
+		
+		//Finds the top of the subtree where the words with this prefix are held.
+		String upper = prefix + Character.MAX_VALUE;
+		Node<DictEntry> top = root;
+		while (top.getElement() != null){
+			String word = top.getElement().word();
+			if (word.compareTo(prefix) <= 0){
+				top = top.getRight();
+			} else if (word.compareTo(upper) >= 0){
+				top = top.getLeft();
+			} else {
+				break;
+			}
+		}
+		
+		//Walks that subtree on the pool.
+		return POOL.invoke(new PrefixTask(top, prefix, upper, 0));
+	}
+	
+	/**
+	 * Gets the file extension of a definition. A definition has an extension when it
+	 * contains exactly one '.'.
+	 * @param definition The definition of a word.
+	 * @return The extension, or null if the definition does not have one.
+	 */
+	public static String extensionOf(String definition){
+		//Splits the definition into parts based on '.'.
+		StringTokenizer split = new StringTokenizer(definition, ".");
+		
+		//Sees if there is only one '.'.
+		if (split.countTokens() != 2) return null;
+		
+		//If so, the second token is the extension.
+		split.nextToken();
+		return split.nextToken();
+	}
+	
+	/**
+	 * Helper method that adds a word to, or removes it from, the secondary indexes.
+	 * @param entry The entry of the word.
+	 * @param add True to add the word, false to remove it.
+	 */
+	private void index(DictEntry entry, boolean add){
+		//Updates the index for the word's type.
+		if (entry.type() >= 1 && entry.type() < typeIndex.size()){
+			if (add){
+				typeIndex.get(entry.type()).add(entry.word());
+			} else {
+				typeIndex.get(entry.type()).remove(entry.word());
+			}
+		}
+		
+		//Updates the index for the definition's extension.
+		String extension = extensionOf(entry.definition());
+		if (extension == null) return;
+		extension = extension.toLowerCase();
+		TreeSet<String> words = extensionIndex.get(extension);
+		if (add){
+			if (words == null){
+				words = new TreeSet<String>();
+				extensionIndex.put(extension, words);
+			}
+			words.add(entry.word());
+		} else if (words != null){
+			words.remove(entry.word());
+			if (words.isEmpty()) extensionIndex.remove(extension);
+		}
+	}
+	
+	/**
+	 * Helper method that narrows an index down to the words beginning with a prefix.
+	 * @param words The index.
+	 * @param prefix The prefix the words begin with.
+	 * @return The part of the index holding the matching words.
+	 */
+	private static SortedSet<String> withPrefix(TreeSet<String> words, String prefix){
+		//Every word beginning with the prefix sorts between it and the prefix followed by the largest character.
+		return words.subSet(prefix, false, prefix + Character.MAX_VALUE, false);
+	}
+	
 	/**
 	 * Helper method that removes an element that has one or fewer children. 
 	 * @param nodeDel The node to be deleted.
@@ -427,6 +567,95 @@ public class OrderedDictionary implements OrderedDictionaryADT{
 		return tree;
 	}
 	
+	/**
+	 * Task that formats the words of a subtree that fall between two bounds. The top
+	 * levels of the subtree are split between threads and the levels below that are
+	 * walked in order into a single buffer.
+	 */
+	private static class PrefixTask extends RecursiveTask<List<StringBuilder>> {
+		private static final long serialVersionUID = 1L;
+		//The top of the subtree.
+		private Node<DictEntry> node;
+		//The words listed are greater than low and smaller than high.
+		private String low, high;
+		//How far down the tree this subtree is.
+		private int depth;
+		
+		public PrefixTask(Node<DictEntry> node, String low, String high, int depth){
+			this.node = node;
+			this.low = low;
+			this.high = high;
+			this.depth = depth;
+		}
+		
+		protected List<StringBuilder> compute(){
+			List<StringBuilder> parts = new ArrayList<StringBuilder>();
+			
+			//Deep enough that the rest is done on this thread.
+			if (depth >= PARALLEL_DEPTH){
+				StringBuilder buffer = new StringBuilder();
+				walk(node, buffer);
+				if (buffer.length() > 0) parts.add(buffer);
+				return parts;
+			}
+			
+			//Nothing is stored in an empty node.
+			if (node.getElement() == null) return parts;
+			String word = node.getElement().word();
+			boolean aboveLow = word.compareTo(low) > 0;
+			boolean belowHigh = word.compareTo(high) < 0;
+			
+			//Only the sides that can hold matching words are walked, the left one on another thread.
+			PrefixTask left = null;
+			if (aboveLow){
+				left = new PrefixTask(node.getLeft(), low, high, depth + 1);
+				left.fork();
+			}
+			List<StringBuilder> right = null;
+			if (belowHigh){
+				right = new PrefixTask(node.getRight(), low, high, depth + 1).compute();
+			}
+			
+			//Puts the parts together in order: left side, this word, right side.
+			if (left != null) parts.addAll(left.join());
+			if (aboveLow && belowHigh){
+				if (parts.isEmpty()) parts.add(new StringBuilder());
+				parts.get(parts.size() - 1).append(word).append('\t');
+			}
+			if (right != null) parts.addAll(right);
+			return parts;
+		}
+		
+		/**
+		 * Walks a subtree in order without recursion, adding every word between the
+		 * bounds to the buffer.
+		 * @param top The top of the subtree.
+		 * @param buffer Where the words are added.
+		 */
+		private void walk(Node<DictEntry> top, StringBuilder buffer){
+			ArrayDeque<Node<DictEntry>> stack = new ArrayDeque<Node<DictEntry>>();
+			Node<DictEntry> current = top;
+			
+			while (current.getElement() != null || !stack.isEmpty()){
+				//Goes as far left as the lower bound allows.
+				while (current.getElement() != null){
+					stack.push(current);
+					if (current.getElement().word().compareTo(low) <= 0) break;
+					current = current.getLeft();
+				}
+				
+				//Visits the next node. Every word from here on is too large once one is.
+				Node<DictEntry> next = stack.pop();
+				String word = next.getElement().word();
+				if (word.compareTo(high) >= 0) return;
+				if (word.compareTo(low) > 0) buffer.append(word).append('\t');
+				
+				//Moves on to the right side.
+				current = next.getRight();
+			}
+		}
+	}
+	
 	/**
 	 * The helper method that recursively finds an element in the tree. If not in the tree, it finds the node where that element
 	 * should be placed.
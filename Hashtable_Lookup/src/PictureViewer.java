@@ -1,11 +1,12 @@
-
 import java.awt.*;
+import java.awt.image.BufferedImage;
 import javax.swing.JFrame;
 import javax.swing.JPanel;
 import java.awt.BorderLayout;
 import javax.swing.JLabel;
 import javax.swing.ImageIcon;
 import java.io.*;
+import java.net.URL;
 
 
 /**
@@ -25,7 +26,8 @@ public class PictureViewer extends JFrame {
     public PictureViewer() {}
 
    /**
-     * Display the picture in a window on the screen.
+     * Display the picture in a window on the screen. If the picture has not
+     * been decoded yet, a rough thumbnail is shown while it is.
      */
     public void show (String fileName) throws MultimediaException {
         try {
@@ -33,11 +35,21 @@ public class PictureViewer extends JFrame {
             contentPane = (JPanel) getContentPane();
             contentPane.setLayout(new BorderLayout());
             setTitle(fileName);
-
-            ImageIcon imicon = new ImageIcon(this.getClass().getResource(fileName));
-            imageLabel.setIcon(imicon);
             contentPane.add(imageLabel, java.awt.BorderLayout.CENTER);
 
+            MediaCache cache = MediaCache.getShared();
+            Image image = cache.peekImage(fileName);
+            if (image == null) {
+                URL location = this.getClass().getResource(fileName);
+                if (location == null) throw new FileNotFoundException(fileName);
+
+                // The header is read once for the thumbnail and the decode
+                ImageHeader header = ImageLoader.readHeader(location);
+                showThumbnail(location, header);
+                image = cache.getImage(fileName, header);
+            }
+            imageLabel.setIcon(new ImageIcon(image));
+
 	    this.pack();
             this.setVisible(true);
 
@@ -52,4 +64,28 @@ public class PictureViewer extends JFrame {
 
 	this.dispose();
     }
+
+   /**
+     * Show a thumbnail of the picture stretched to the size the full picture
+     * will have.
+     */
+    private void showThumbnail (URL location, ImageHeader header) throws IOException {
+        Dimension target = targetSize();
+        Dimension size = ImageLoader.decodedSize(header, target.width, target.height);
+        BufferedImage thumb = ImageLoader.thumbnail(location, header, target.width, target.height);
+        imageLabel.setIcon(new ImageIcon(ImageLoader.scale(thumb, size.width, size.height)));
+
+	this.pack();
+        this.setVisible(true);
+    }
+
+   /**
+     * The largest size a picture is shown at: the size of the screen, or
+     * 1024x768 when there is no screen.
+     */
+    public static Dimension targetSize () {
+        if (GraphicsEnvironment.isHeadless())
+            return new Dimension(1024, 768);
+        return Toolkit.getDefaultToolkit().getScreenSize();
+    }
 }
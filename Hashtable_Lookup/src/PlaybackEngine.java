@@ -0,0 +1,223 @@
+import java.io.*;
+import java.util.concurrent.LinkedBlockingQueue;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+
+/**
+ * Class that plays sampled sound files on its own thread so that the command loop
+ * does not have to wait for them. Files are queued and streamed one fixed-size buffer
+ * at a time into an audio sink, which lets the current track be skipped or the whole
+ * queue stopped between any two buffers. Sounds already decoded in the media cache
+ * are streamed from memory rather than read from disk.
+ */
+public class PlaybackEngine implements Runnable {
+	//The number of bytes streamed to the sink at a time.
+	public static final int BUFFER_SIZE = 4096;
+
+	//Where the PCM data is sent.
+	private AudioSink sink;
+	//The cache that is checked for already decoded sounds (may be null).
+	private MediaCache cache;
+	//The files waiting to be played.
+	private LinkedBlockingQueue<String> queue;
+	//The thread the tracks are played on.
+	private Thread worker;
+
+	//The file that is currently playing (null when idle).
+	private volatile String current;
+	//Set to stop the track that is currently playing or about to start. Only changed
+	//while holding the engine's lock, and cleared once that track is done.
+	private volatile boolean skipRequested;
+	//Set once the engine has been shut down.
+	private volatile boolean shutdown;
+	//The number of tracks that are queued or playing.
+	private int outstanding;
+
+	/**
+	 * Constructor that sets up the engine and starts its playback thread.
+	 * @param sink Where the PCM data is sent.
+	 * @param cache The cache checked for already decoded sounds, or null to always stream from disk.
+	 */
+	public PlaybackEngine(AudioSink sink, MediaCache cache){
+		this.sink = sink;
+		this.cache = cache;
+		this.queue = new LinkedBlockingQueue<String>();
+		this.outstanding = 0;
+
+		//The playback thread never keeps the program alive on its own.
+		worker = new Thread(this, "playback");
+		worker.setDaemon(true);
+		worker.start();
+	}
+
+	/**
+	 * Adds a sound file to the end of the queue and returns straight away.
+	 * @param fileName The path of the sound file.
+	 */
+	public void play(String fileName){
+		synchronized (this){
+			outstanding++;
+		}
+		queue.add(fileName);
+	}
+
+	/**
+	 * Stops the track that is currently playing and moves on to the next one.
+	 */
+	public synchronized void skip(){
+		//Only a track that is playing or about to start can be skipped.
+		if (outstanding > 0) skipRequested = true;
+	}
+
+	/**
+	 * Stops the track that is currently playing and empties the queue.
+	 */
+	public void stop(){
+		//Removes everything that hasn't started yet.
+		int removed = 0;
+		while (queue.poll() != null){
+			removed++;
+		}
+		synchronized (this){
+			outstanding -= removed;
+			if (outstanding > 0) skipRequested = true;
+			notifyAll();
+		}
+	}
+
+	/**
+	 * Stops playback and ends the playback thread.
+	 */
+	public void shutdown(){
+		shutdown = true;
+		stop();
+		worker.interrupt();
+	}
+
+	/**
+	 * Returns the file that is currently playing.
+	 * @return The path of the file, or null if nothing is playing.
+	 */
+	public String current(){
+		return current;
+	}
+
+	/**
+	 * Returns the number of tracks that are queued or playing.
+	 * @return The number of tracks.
+	 */
+	public synchronized int outstanding(){
+		return outstanding;
+	}
+
+	/**
+	 * Waits until every queued track has played or been stopped.
+	 * @param timeout The maximum number of milliseconds to wait.
+	 * @return True if the engine became idle before the timeout.
+	 */
+	public synchronized boolean waitUntilIdle(long timeout) throws InterruptedException {
+		long end = System.currentTimeMillis() + timeout;
+		while (outstanding > 0){
+			long remaining = end - System.currentTimeMillis();
+			if (remaining <= 0) return false;
+			wait(remaining);
+		}
+		return true;
+	}
+
+	/**
+	 * The playback loop. Takes each file off the queue in turn and streams it to the sink.
+	 */
+	public void run(){
+		while (!shutdown){
+			String fileName;
+			try {
+				fileName = queue.take();
+			} catch (InterruptedException e){
+				continue;
+			}
+
+			//Plays the track, reporting any problem without ending the loop. A skip sent
+			//while the track was being taken off the queue is kept and stops it here.
+			boolean skipped;
+			synchronized (this){
+				current = fileName;
+				skipped = skipRequested;
+			}
+			try {
+				if (!skipped) stream(fileName);
+			} catch (MultimediaException e){
+				System.out.println("Error: Cannot play media file \"" + fileName + "\".");
+			}
+
+			//Lets anyone waiting know the track is done, and clears the skip that was
+			//meant for it before the next track can start.
+			synchronized (this){
+				current = null;
+				skipRequested = false;
+				outstanding--;
+				notifyAll();
+			}
+		}
+	}
+
+	/**
+	 * Helper method that streams a single file into the sink.
+	 * @param fileName The path of the sound file.
+	 * @throws MultimediaException If the file cannot be read or the sink cannot take its format.
+	 */
+	private void stream(String fileName) throws MultimediaException {
+		AudioInputStream stream = open(fileName);
+		try {
+			sink.open(stream.getFormat());
+			try {
+				//Sends one buffer at a time, checking for skips in between.
+				byte[] buffer = new byte[BUFFER_SIZE];
+				int read;
+				while (!skipRequested && (read = stream.read(buffer)) != -1){
+					sink.write(buffer, 0, read);
+				}
+
+				//Either lets the track finish or discards what is left of it.
+				if (skipRequested){
+					sink.flush();
+				} else {
+					sink.drain();
+				}
+			} finally {
+				sink.close();
+			}
+		} catch (IOException e){
+			throw new MultimediaException("Error playing sound file " + fileName);
+		} finally {
+			try {
+				stream.close();
+			} catch (IOException e){
+				//Nothing more can be done with the stream.
+			}
+		}
+	}
+
+	/**
+	 * Helper method that opens a sound as a PCM stream. Uses the decoded copy in the
+	 * media cache if there is one, otherwise streams the file from disk.
+	 * @param fileName The path of the sound file.
+	 * @return A PCM stream of the sound.
+	 * @throws MultimediaException If the file cannot be opened or decoded.
+	 */
+	private AudioInputStream open(String fileName) throws MultimediaException {
+		//Streams from memory when the sound is already decoded.
+		DecodedSound sound = (cache == null) ? null : cache.peekSound(fileName);
+		if (sound != null && !sound.isMidi()){
+			AudioFormat format = sound.format();
+			return new AudioInputStream(new ByteArrayInputStream(sound.data()), format,
+					sound.data().length / format.getFrameSize());
+		}
+
+		try {
+			return MediaCache.pcmStream(new File(fileName));
+		} catch (Exception e){
+			throw new MultimediaException("Error playing sound file " + fileName);
+		}
+	}
+}
@@ -1,5 +1,7 @@
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Main method that utilizes commands to perform actions on an ordered dictionary. Loads
@@ -9,16 +11,47 @@ import java.util.*;
 public class Query {
 	//The ordered dictionary that contains all the elements of the dictionary.
 	private static OrderedDictionary smartDict;
+	//Decodes the media next to the word being browsed in the background.
+	private static MediaPrefetcher prefetcher = new MediaPrefetcher(MediaCache.getShared());
+	//Plays sampled sounds in the background (created the first time a sound is played).
+	private static PlaybackEngine player;
+	
+	//How long a command waits for a word that hasn't been loaded yet (in milliseconds).
+	private static final long LOAD_WAIT = 2000;
+	//Whether the dictionary is still being loaded in the background.
+	private static volatile boolean loading = false;
+	//The size of the dictionary file and how much of it has been read.
+	private static long loadTotal, loadRead;
+	//The number of entries that have been loaded so far.
+	private static int loadCount;
+	//The commands waiting for a word to be loaded, keyed by the word.
+	private static HashMap<String, CountDownLatch> waiting = new HashMap<String, CountDownLatch>();
+	//Whether prefix listings are built in parallel.
+	private static boolean parallelList = false;
 	
 	/**
 	 * Main method that loads a text file, sets up the dictionary and then
 	 * continues to accept commands. These commands are operations on the 
-	 * tree.
-	 * @param args The path of the text file to be loaded.
+	 * tree. With the "-background" option, commands are accepted straight away
+	 * while the file is loaded in the background. With the "-parallel" option, the
+	 * list command walks the tree on several threads.
+	 * @param args The path of the text file to be loaded, optionally followed by "-background" and "-parallel".
 	 */
 	public static void main(String[] args){
+			boolean background = false;
+			
 			//First, checks if the arguments are correct.
-			if (args.length != 1){
+			boolean valid = args.length >= 1;
+			for (int i = 1; i < args.length; i++){
+				if (args[i].equals("-background")){
+					background = true;
+				} else if (args[i].equals("-parallel")){
+					parallelList = true;
+				} else {
+					valid = false;
+				}
+			}
+			if (!valid){
 				//Invalid path.
 				System.out.println("Error: Invalid arguments entered.\n\tA path must be specified.");
 				return;
@@ -27,7 +60,7 @@ public class Query {
 			//Creates a new dictionary and then loads the tree from the file.
 			System.out.println("Loading tree from \"" + args[0] + "\"");
 			smartDict = new OrderedDictionary();
-			dictLoader(args[0]);
+			dictLoader(args[0], background);
 			
 			//Now moves into the commands section.
 			boolean end = false;
@@ -47,7 +80,7 @@ public class Query {
 	 * @return A boolean indicating whether the program should keep accepting commands.
 	 */
 	private static boolean commandEntry(){
-		String command = "", argument = "";
+		String command = "", argument = "", filter = "";
 		
 		//Gets the user's input.
 		StringReader keyboard = new StringReader();
@@ -56,8 +89,9 @@ public class Query {
 		//Splits the user's input into commands/arguments.
 		StringTokenizer tokenizer= new StringTokenizer(line, " ");
 		
-		//Now checks to see if the command entered was correct.
-		if((tokenizer.countTokens() == 0) || (tokenizer.countTokens() > 2)) {
+		//Now checks to see if the command entered was correct. Only list takes a third word.
+		if((tokenizer.countTokens() == 0) || (tokenizer.countTokens() > 3) ||
+				((tokenizer.countTokens() == 3) && !line.trim().startsWith("list "))) {
 			System.out.println("Error: Invalid entry.");
 			return false;
 		}
@@ -69,6 +103,10 @@ public class Query {
 			argument = tokenizer.nextToken();
 			argument = argument.toLowerCase();
 		}
+		if (tokenizer.hasMoreTokens()){
+			//Sets the last word as the list filter.
+			filter = tokenizer.nextToken().toLowerCase();
+		}
 		
 		//Looks up the command and matches the argument.
 		if (command.equals("define")){
@@ -96,8 +134,15 @@ public class Query {
 				return false;
 			}
 			
+			//A prefix of "*" matches every word.
+			if (argument.equals("*")) argument = "";
+			
 			//Otherwise, lists all the words related to the prefix.
-			listCom(argument);
+			if (filter == ""){
+				listCom(argument);
+			} else {
+				listFilteredCom(argument, filter);
+			}
 		} else if (command.equals("next")){
 			if (argument == ""){
 				//If there is no argument, there is an invalid command.
@@ -116,6 +161,15 @@ public class Query {
 			
 			//Otherwise, gets the predecessor.
 			predecessorCom(argument);
+		} else if ((command.equals("progress")) && (argument == "")){
+			//Tells the user how much of the dictionary has been loaded.
+			progressCom();
+		} else if ((command.equals("stop")) && (argument == "")){
+			//Stops the current sound and clears the queue.
+			if (player != null) player.stop();
+		} else if ((command.equals("skip")) && (argument == "")){
+			//Moves on to the next queued sound.
+			if (player != null) player.skip();
 		} else if ((command.equals("end")) && (argument == "")){
 			//Returns true to tell the program to stop accepting input.
 			return true;
@@ -139,10 +193,20 @@ public class Query {
 	 * @param word The word to be looked up.
 	 */
 	private static void defineCom(String word){
-		//Gets the definition of the word.
-		String definition = smartDict.findWord(word);
-		//Gets the type of the word.
-		int type = smartDict.findType(word);
+		//Makes sure the word has had a chance to load.
+		if (!awaitWord(word)) return;
+		
+		String definition;
+		int type;
+		synchronized (smartDict){
+			//Gets the definition of the word.
+			definition = smartDict.findWord(word);
+			//Gets the type of the word.
+			type = smartDict.findType(word);
+		}
+		
+		//Gets the media around this word decoding while this one is shown.
+		if (type != -1) prefetchNeighbours(word);
 		
 		//Determines what to do with the definition.
 		switch (type){
@@ -155,15 +219,23 @@ public class Query {
 			System.out.println(definition);
 			break;
 		case 2:
-			//Plays the sound related to the word.
-			SoundPlayer player = new SoundPlayer();
-			try {
-				//Tries to play the sound.
-				player.play(definition);
-			} catch (MultimediaException e) {
-				//On error, tells the user of such.
-				System.out.println("Error: Cannot play media file.");
+			//MIDI sounds are not sampled audio so they still play in the foreground.
+			if (definition.toLowerCase().endsWith(".mid")){
+				SoundPlayer midiPlayer = new SoundPlayer();
+				try {
+					//Tries to play the sound.
+					midiPlayer.play(definition);
+				} catch (MultimediaException e) {
+					//On error, tells the user of such.
+					System.out.println("Error: Cannot play media file.");
+				}
+				break;
 			}
+			
+			//Queues the sound in the background so more commands can be entered.
+			if (player == null) player = new PlaybackEngine(new LineSink(), MediaCache.getShared());
+			player.play(definition);
+			System.out.println("Playing \"" + definition + "\". Enter \"skip\" or \"stop\" to end it.");
 			break;
 		case 3:
 			//Shows the picture related to the word.
@@ -185,9 +257,14 @@ public class Query {
 	 * @param word The word that is desired to be removed.
 	 */
 	private static void removeCom(String word){
+		//Makes sure the word has had a chance to load.
+		if (!awaitWord(word)) return;
+		
 		try {
 			//Tries to remove the word from the dictionary.
-			smartDict.remove(word);
+			synchronized (smartDict){
+				smartDict.remove(word);
+			}
 		} catch (DictionaryException e) {
 			//If there is a dictionary exception, tells the user that the word cannot be found.
 			System.out.println("Error: Item \"" + word + "\" is not in the dictionary.");
@@ -203,23 +280,43 @@ public class Query {
 	 * @param prefix The prefix to be used to find all those elements.
 	 */
 	private static void listCom(String prefix){
+		//Warns the user that some elements may not have been loaded yet.
+		if (loading) printLoading();
+		
 		//Prints a title for the list command.
 		System.out.println("The elements that match the prefix are:");
 		String word = prefix;
 		
+		//Builds the list on several threads and prints the pieces in order.
+		if (parallelList){
+			synchronized (smartDict){
+				List<StringBuilder> parts = smartDict.listPrefix(prefix);
+				for (StringBuilder part : parts){
+					System.out.append(part);
+				}
+				if (parts.isEmpty()){
+					System.out.print("<None>");
+				}
+			}
+			System.out.println();
+			return;
+		}
+		
 		//Booleans to indicate status of loop.
 		boolean elements = true, added = false; 
-		while (elements){
-			//Gets the successor to a word.
-			word = smartDict.successor(word);
-			elements = false;
-			
-			//Sees if the word either contains or equals the prefix.
-			if (word.startsWith(prefix)){
-				//Prints the word and sets elements and added to true.
-				System.out.print(word + "\t");
-				elements = true;
-				added = true;
+		synchronized (smartDict){
+			while (elements){
+				//Gets the successor to a word.
+				word = smartDict.successor(word);
+				elements = false;
+				
+				//Sees if the word either contains or equals the prefix.
+				if (word.startsWith(prefix)){
+					//Prints the word and sets elements and added to true.
+					System.out.print(word + "\t");
+					elements = true;
+					added = true;
+				}
 			}
 		}
 		
@@ -230,13 +327,64 @@ public class Query {
 		System.out.println();
 	}
 	
+	/**
+	 * Lists the elements beginning with a prefix that are of a certain type or have a
+	 * certain file extension. Uses the dictionary's indexes so only matching elements
+	 * are looked at.
+	 * @param prefix The prefix to be used to find the elements.
+	 * @param filter Either a type ("text", "sound" or "picture") or an extension such as ".gif".
+	 */
+	private static void listFilteredCom(String prefix, String filter){
+		//Works out which type the filter names, if any.
+		int type = -1;
+		if (filter.equals("text")){
+			type = 1;
+		} else if (filter.equals("sound")){
+			type = 2;
+		} else if (filter.equals("picture")){
+			type = 3;
+		}
+		
+		//Warns the user that some elements may not have been loaded yet.
+		if (loading) printLoading();
+		
+		//Prints a title for the list command.
+		System.out.println("The " + filter + " elements that match the prefix are:");
+		
+		synchronized (smartDict){
+			//Gets the matching words from the right index.
+			SortedSet<String> words;
+			if (type != -1){
+				words = smartDict.wordsOfType(type, prefix);
+			} else {
+				words = smartDict.wordsWithExtension(filter.startsWith(".") ? filter.substring(1) : filter, prefix);
+			}
+			
+			//Prints every word, or <None> if there are none.
+			for (String word : words){
+				System.out.print(word + "\t");
+			}
+			if (words.isEmpty()){
+				System.out.print("<None>");
+			}
+		}
+		System.out.println();
+	}
+	
 	/**
 	 * Prints the successor to a valid word in the dictionary.
 	 * @param word The word to find the successor to.
 	 */
 	private static void successorCom(String word){
+		//Makes sure the word has had a chance to load.
+		if (!awaitWord(word)) return;
+		
 		//Finds the current word in the dictionary.
-		String search = smartDict.findWord(word);
+		String search, successor;
+		synchronized (smartDict){
+			search = smartDict.findWord(word);
+			successor = smartDict.successor(word);
+		}
 		
 		//If there is a null string, the word is not in the dictionary.
 		if (search == ""){
@@ -245,8 +393,8 @@ public class Query {
 			return;
 		}
 		
-		//Otherwise, gets the successor.
-		String successor = smartDict.successor(word);
+		//Warns the user that the successor may not have been loaded yet.
+		if (loading) printLoading();
 		
 		if (successor == ""){
 			//If there is no successor, this is the greatest element.
@@ -255,6 +403,9 @@ public class Query {
 			//Otherwise, prints the successor.
 			System.out.println("The successor is \"" + successor + "\".");
 		}
+		
+		//Gets the media around this word ready for the next command.
+		prefetchNeighbours(word);
 	}
 	
 	/**
@@ -262,8 +413,15 @@ public class Query {
 	 * @param word The word to find the predecessor to.
 	 */
 	private static void predecessorCom(String word){
+		//Makes sure the word has had a chance to load.
+		if (!awaitWord(word)) return;
+		
 		//Sees if the word passed is a valid word in the dictionary.
-		String search = smartDict.findWord(word);
+		String search, predecessor;
+		synchronized (smartDict){
+			search = smartDict.findWord(word);
+			predecessor = smartDict.predecessor(word);
+		}
 		
 		//Looks to see if it was found.
 		if (search == ""){
@@ -272,8 +430,8 @@ public class Query {
 			return;
 		}
 		
-		//Otherwise, gets the predecessor.
-		String predecessor = smartDict.predecessor(word);
+		//Warns the user that the predecessor may not have been loaded yet.
+		if (loading) printLoading();
 		
 		if (predecessor == ""){
 			//Sees if there is no predecessor. Tells the user of such.
@@ -282,17 +440,115 @@ public class Query {
 			//Prints the predecessor.
 			System.out.println("The predecessor is \"" + predecessor + "\".");
 		}
+		
+		//Gets the media around this word ready for the next command.
+		prefetchNeighbours(word);
+	}
+	
+	/**
+	 * Starts decoding the pictures and sounds of the successor and predecessor of a word
+	 * in the background. Prefetches for words the user has moved away from are cancelled.
+	 * @param word The word that was just accessed.
+	 */
+	private static void prefetchNeighbours(String word){
+		//Holds the media definitions and their types.
+		Map<String, Integer> media = new HashMap<String, Integer>();
+		
+		//Looks up the words on either side of this one.
+		synchronized (smartDict){
+			String[] neighbours = {smartDict.successor(word), smartDict.predecessor(word)};
+			for (String neighbour : neighbours){
+				if (neighbour == "") continue;
+				
+				//Only sounds and pictures need decoding.
+				int type = smartDict.findType(neighbour);
+				if (type == 2 || type == 3){
+					media.put(smartDict.findWord(neighbour), type);
+				}
+			}
+		}
+		
+		prefetcher.prefetch(media);
+	}
+	
+	/**
+	 * Tells the user how much of the dictionary has been loaded.
+	 */
+	private static void progressCom(){
+		synchronized (smartDict){
+			if (loading){
+				System.out.println("Loading: " + loadCount + " entries (" + loadPercent() + "% of the file).");
+			} else {
+				System.out.println("Dictionary fully loaded: " + loadCount + " entries.");
+			}
+		}
+	}
+	
+	/**
+	 * Waits for a word to be loaded if the dictionary is still loading. Only waits on
+	 * that one word, and gives up after a short time.
+	 * @param word The word that a command needs.
+	 * @return True if the command can go ahead, false if the word is still not loaded.
+	 */
+	private static boolean awaitWord(String word){
+		CountDownLatch latch;
+		
+		//Sees if there is any need to wait.
+		synchronized (smartDict){
+			if (!loading || smartDict.findType(word) != -1) return true;
+			
+			//Waits alongside anyone else who wants the same word.
+			latch = waiting.get(word);
+			if (latch == null){
+				latch = new CountDownLatch(1);
+				waiting.put(word, latch);
+			}
+		}
+		
+		try {
+			latch.await(LOAD_WAIT, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e){
+			Thread.currentThread().interrupt();
+		}
+		
+		//Sees if the word arrived or the loading finished.
+		synchronized (smartDict){
+			if (!loading || smartDict.findType(word) != -1) return true;
+		}
+		
+		//Tells the user the word isn't available yet.
+		System.out.println("Still loading: \"" + word + "\" has not been loaded yet (" + loadPercent() + "% done).");
+		return false;
+	}
+	
+	/**
+	 * Prints a warning that the dictionary is still loading and results may be incomplete.
+	 */
+	private static void printLoading(){
+		System.out.println("Note: still loading (" + loadPercent() + "% done), results may be incomplete.");
+	}
+	
+	/**
+	 * Works out how much of the dictionary file has been loaded.
+	 * @return The percentage of the file that has been loaded.
+	 */
+	private static int loadPercent(){
+		synchronized (smartDict){
+			if (loadTotal <= 0) return loading ? 0 : 100;
+			return (int) Math.min(100, (loadRead * 100) / loadTotal);
+		}
 	}
 	
 	/**
 	 * Method that accepts a path from the calling method and then loads all the elements
-	 * into the dictionary from that path.
+	 * into the dictionary from that path. In the background the elements are loaded on
+	 * their own thread and this method returns straight away.
 	 * @param path The path of the file containing the dictionary elements.
+	 * @param background Whether to load the elements in the background.
 	 */
-	private static void dictLoader(String path){
-		//Creates a new buffered reader and string array of size 2.
+	private static void dictLoader(String path, boolean background){
+		//Creates a new buffered reader.
 		BufferedReader fileRead = null;
-		String[] entry = new String[2];
 		
 		try {
 			//Loads the file and sets up the buffered reader as such.
@@ -302,7 +558,36 @@ public class Query {
 			System.out.println("Error: File not found.");
 			System.exit(0);
 		}
-		 
+		
+		//Records the size of the file so progress can be reported.
+		loadTotal = new File(path).length();
+		loadRead = 0;
+		loadCount = 0;
+		
+		if (background){
+			//Starts the loading thread and returns.
+			loading = true;
+			final BufferedReader reader = fileRead;
+			Thread loader = new Thread(new Runnable(){
+				public void run(){
+					readEntries(reader);
+				}
+			}, "dictionary-loader");
+			loader.setDaemon(true);
+			loader.start();
+		} else {
+			readEntries(fileRead);
+		}
+	}
+	
+	/**
+	 * Reads every word and definition from the dictionary file and adds them. Wakes
+	 * up any command waiting for a word as soon as that word is added.
+	 * @param fileRead The reader for the dictionary file.
+	 */
+	private static void readEntries(BufferedReader fileRead){
+		//Creates a string array of size 2.
+		String[] entry = new String[2];
 		boolean addComplete = false;
 		
 		//Loops while all the elements haven't been added.
@@ -321,17 +606,36 @@ public class Query {
 				if (entry[1] == null){
 					//If this line was null, then the text file was improperly formatted.
 					System.out.println("Error: File contains odd number of lines.");
-					System.exit(0);
+					if (!loading) System.exit(0);
+					break;
 				}
 			} catch (IOException e){
 				//If there is an error, tells the user that there is such and exits.
 				System.out.println("Error: Problem reading file.");
-				System.exit(0);
+				if (!loading) System.exit(0);
+				break;
 			}
 			
 			//Lowercases the word and then adds it to the dictionary.
 			entry[0] = entry[0].toLowerCase();
-			addItem(entry[0], entry[1]);
+			synchronized (smartDict){
+				addItem(entry[0], entry[1]);
+				loadRead += entry[0].length() + entry[1].length() + 2;
+				loadCount++;
+				
+				//Wakes up any command waiting for this word.
+				CountDownLatch latch = waiting.remove(entry[0]);
+				if (latch != null) latch.countDown();
+			}
+		}
+		
+		//Loading is done, so nobody needs to wait any more.
+		synchronized (smartDict){
+			loading = false;
+			for (CountDownLatch latch : waiting.values()){
+				latch.countDown();
+			}
+			waiting.clear();
 		}
 	}
 	
@@ -342,16 +646,12 @@ public class Query {
 	 * @param definition The definition of the corresponding word.
 	 */
 	private static void addItem(String word, String definition){
-		//Splits the definition into parts based on '.'.
-		StringTokenizer split = new StringTokenizer(definition, ".");
+		//Gets the extension of the definition, if it has one.
+		String extension = OrderedDictionary.extensionOf(definition);
 		int type = 1;
 		
 		//Sees if there is only one '.'.
-		if (split.countTokens() == 2){
-			//If so, goes to the next token as stores it as it's extension.
-			split.nextToken();
-			String extension = split.nextToken();
-		
+		if (extension != null){
 			//Determines if the extension is a media file or a picture file.
 			//Sets the type accordingly.
 			if (extension.equals("wav") || extension.equals("mid")){
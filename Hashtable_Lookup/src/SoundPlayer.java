@@ -1,7 +1,8 @@
 import java.io.*;
-import java.applet.Applet;
-import java.applet.AudioClip;
-import java.net.URL;
+import javax.sound.midi.MidiSystem;
+import javax.sound.midi.Sequencer;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.Clip;
 
 public class SoundPlayer {
 
@@ -10,20 +11,37 @@ public class SoundPlayer {
 
   public  void play(String fileName) throws MultimediaException{    
    /* Play a file of type .wav or .mid. If the file cannot be played a 
-      MultimediaException is thrown.                                        */
+      MultimediaException is thrown. The decoded sound is taken from the
+      shared media cache so replaying a sound does not decode it again.     */
     try {
-      File file = new File(fileName);
-      URL url = file.toURL();
-      AudioClip ac = Applet.newAudioClip(url);
-      ac.play();         
+      DecodedSound sound = MediaCache.getShared().getSound(fileName);
 
+      if (sound.isMidi()) {
+        Sequencer sequencer = MidiSystem.getSequencer();
+        sequencer.open();
+        sequencer.setSequence(sound.sequence());
+        sequencer.start();
+        waitForReturn();
+        sequencer.stop();
+        sequencer.close();
+      } else {
+        Clip clip = AudioSystem.getClip();
+        clip.open(sound.format(), sound.data(), 0, sound.data().length);
+        clip.start();
+        waitForReturn();
+        clip.stop();
+        clip.close();
+      }
+    } catch (Exception e) {
+       throw new MultimediaException("Error playing sound file "+fileName);
+    }
+  }
+
+  /* Wait until the user presses RET. */
+  private void waitForReturn() throws IOException {
       System.out.println("Press RET to continue.");
       BufferedReader keyboard =  new BufferedReader
 		                   (new InputStreamReader(System.in));
       String c = keyboard.readLine();
-      ac.stop();
-    } catch (Exception e) {
-       throw new MultimediaException("Error playing sound file "+fileName);
-    }
   }
 }
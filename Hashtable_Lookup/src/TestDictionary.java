@@ -0,0 +1,87 @@
+import java.util.*;
+
+public class TestDictionary {
+
+  /*
+  ** Test program for the successor and predecessor walks of the
+  ** OrderedDictionary class, including when the root holds the smallest
+  ** or largest word (as it does for a file loaded in sorted order).
+  */
+
+  public static void main(String[] args) throws Exception {
+    OrderedDictionary dict;
+
+    // Test 1: the root holds the smallest word.
+    dict = make("apple", "banana", "cherry");
+    if (dict.successor("").equals("apple") && dict.successor("a").equals("apple") &&
+        dict.predecessor("zzz").equals("cherry"))
+      System.out.println("   Test 1 succeeded");
+    else System.out.println("***Test 1 failed");
+
+    // Test 2: the words at either end have no successor or predecessor.
+    if (dict.successor("cherry").equals("") && dict.predecessor("apple").equals("") &&
+        dict.successor("apple").equals("banana") && dict.predecessor("banana").equals("apple"))
+      System.out.println("   Test 2 succeeded");
+    else System.out.println("***Test 2 failed");
+
+    // Test 3: walking with successor lists the same words as listPrefix,
+    // which is how the list command finds them.
+    if (walk(dict, "").equals(listed(dict, "")) && walk(dict, "b").equals("banana\t"))
+      System.out.println("   Test 3 succeeded");
+    else System.out.println("***Test 3 failed");
+
+    // Test 4: the root holds the largest word.
+    dict = make("cherry", "banana", "apple");
+    if (dict.successor("").equals("apple") && dict.predecessor("zzz").equals("cherry") &&
+        dict.successor("cherry").equals("") && walk(dict, "").equals("apple\tbanana\tcherry\t"))
+      System.out.println("   Test 4 succeeded");
+    else System.out.println("***Test 4 failed");
+
+    // Test 5: the walks still work after the root is removed, and on an
+    // emptied dictionary.
+    dict = make("apple", "banana", "cherry");
+    dict.remove("apple");
+    boolean afterRoot = dict.successor("").equals("banana") && dict.predecessor("banana").equals("");
+    dict.remove("banana");
+    dict.remove("cherry");
+    if (afterRoot && dict.successor("").equals("") && dict.predecessor("zzz").equals(""))
+      System.out.println("   Test 5 succeeded");
+    else System.out.println("***Test 5 failed");
+
+    // Test 6: many words inserted in sorted order are all walked in order.
+    String[] words = new String[200];
+    for (int i = 0; i < words.length; i++) words[i] = String.format("word%03d", i);
+    dict = make(words);
+    StringBuilder all = new StringBuilder();
+    for (String word : words) all.append(word).append('\t');
+    if (walk(dict, "").equals(all.toString()) && walk(dict, "word19").length() == 10 * 8 &&
+        walk(dict, "").equals(listed(dict, "")))
+      System.out.println("   Test 6 succeeded");
+    else System.out.println("***Test 6 failed");
+  }
+
+  // Creates a dictionary with the words inserted in the order given.
+  private static OrderedDictionary make(String... words) throws DictionaryException {
+    OrderedDictionary dict = new OrderedDictionary();
+    for (String word : words) dict.insert(word, "definition of " + word, 1);
+    return dict;
+  }
+
+  // Lists the words beginning with a prefix the way the list command does.
+  private static String walk(OrderedDictionary dict, String prefix) {
+    StringBuilder list = new StringBuilder();
+    String word = dict.successor(prefix);
+    while (word.startsWith(prefix) && !word.equals("")) {
+      list.append(word).append('\t');
+      word = dict.successor(word);
+    }
+    return list.toString();
+  }
+
+  // Lists the words beginning with a prefix with the parallel walk.
+  private static String listed(OrderedDictionary dict, String prefix) {
+    StringBuilder list = new StringBuilder();
+    for (StringBuilder part : dict.listPrefix(prefix)) list.append(part);
+    return list.toString();
+  }
+}
@@ -0,0 +1,108 @@
+import java.io.*;
+import javax.sound.sampled.*;
+
+public class TestPlayback {
+
+  /*
+  ** Test program for the PlaybackEngine class. Runs headless by playing
+  ** into a CountingSink instead of the speakers.
+  */
+
+  public static void main(String[] args) throws Exception {
+    File shortWav = makeWav(1);    // 1 second, 16000 bytes of PCM
+    File longWav = makeWav(10);    // 10 seconds, 160000 bytes of PCM
+    CountingSink sink;
+    PlaybackEngine engine;
+
+    // Test 1: a whole track reaches the sink and finishes normally.
+    sink = new CountingSink();
+    engine = new PlaybackEngine(sink, null);
+    engine.play(shortWav.getPath());
+    if (engine.waitUntilIdle(5000) && sink.bytes() == 16000 && sink.drained() == 1)
+      System.out.println("   Test 1 succeeded");
+    else System.out.println("***Test 1 failed");
+    engine.shutdown();
+
+    // Test 2: play returns without waiting for the track.
+    sink = new CountingSink(20);
+    engine = new PlaybackEngine(sink, null);
+    long start = System.currentTimeMillis();
+    engine.play(longWav.getPath());
+    if (System.currentTimeMillis() - start < 20 && engine.outstanding() == 1)
+      System.out.println("   Test 2 succeeded");
+    else System.out.println("***Test 2 failed");
+
+    // Test 3: skip ends the current track early.
+    Thread.sleep(100);
+    engine.skip();
+    if (engine.waitUntilIdle(1000) && sink.bytes() < 160000 && sink.flushed() == 1)
+      System.out.println("   Test 3 succeeded");
+    else System.out.println("***Test 3 failed");
+
+    // Test 4: stop ends the current track and clears the queue.
+    engine.play(longWav.getPath());
+    engine.play(longWav.getPath());
+    engine.play(longWav.getPath());
+    Thread.sleep(100);
+    engine.stop();
+    if (engine.waitUntilIdle(1000) && sink.tracks() == 2)
+      System.out.println("   Test 4 succeeded");
+    else System.out.println("***Test 4 failed");
+    engine.shutdown();
+
+    // Test 5: a sound already in the media cache is streamed from memory.
+    MediaCache cache = new MediaCache(MediaCache.DEFAULT_BUDGET);
+    cache.getSound(shortWav.getPath());
+    sink = new CountingSink();
+    engine = new PlaybackEngine(sink, cache);
+    engine.play(shortWav.getPath());
+    if (engine.waitUntilIdle(5000) && sink.bytes() == 16000 && cache.size() == 1)
+      System.out.println("   Test 5 succeeded");
+    else System.out.println("***Test 5 failed");
+
+    // Test 6: a missing file is reported and the queue keeps going.
+    engine.play("no_such_sound.wav");
+    engine.play(shortWav.getPath());
+    if (engine.waitUntilIdle(5000) && sink.bytes() == 32000 && sink.tracks() == 2)
+      System.out.println("   Test 6 succeeded");
+    else System.out.println("***Test 6 failed");
+    engine.shutdown();
+
+    // Test 7: a skip sent as the track starts is not lost.
+    sink = new CountingSink(20);
+    engine = new PlaybackEngine(sink, null);
+    engine.play(longWav.getPath());
+    engine.skip();
+    if (engine.waitUntilIdle(1000) && sink.bytes() < 160000)
+      System.out.println("   Test 7 succeeded");
+    else System.out.println("***Test 7 failed");
+
+    // Test 8: a skip sent while idle does not cut off the next track.
+    long before = sink.bytes();
+    engine.skip();
+    engine.play(shortWav.getPath());
+    if (engine.waitUntilIdle(5000) && sink.bytes() - before == 16000)
+      System.out.println("   Test 8 succeeded");
+    else System.out.println("***Test 8 failed");
+    engine.shutdown();
+
+    shortWav.delete();
+    longWav.delete();
+  }
+
+  /* Writes a mono 16-bit 8kHz tone of the given length to a temporary file */
+  private static File makeWav(int seconds) throws IOException {
+    AudioFormat format = new AudioFormat(8000f, 16, 1, true, false);
+    byte[] data = new byte[seconds * 16000];
+    for (int i = 0; i < data.length / 2; i++) {
+      short sample = (short) (Math.sin(i * 2 * Math.PI * 440 / 8000) * 8000);
+      data[2 * i] = (byte) sample;
+      data[2 * i + 1] = (byte) (sample >> 8);
+    }
+    File file = File.createTempFile("tone", ".wav");
+    AudioInputStream stream = new AudioInputStream(
+        new ByteArrayInputStream(data), format, data.length / 2);
+    AudioSystem.write(stream, AudioFileFormat.Type.WAVE, file);
+    return file;
+  }
+}
@@ -0,0 +1,113 @@
+import java.util.*;
+
+public class TestTreap {
+
+  /*
+  ** Test program for the union, intersection and difference operations of
+  ** the TreapDictionary class. Small cases are checked by hand and large
+  ** ones (big enough to run in parallel) against a TreeMap.
+  */
+
+  public static void main(String[] args) throws Exception {
+    TreapDictionary a, b;
+
+    // Test 1: union adds the other words, keeps the other definitions of
+    // shared words and leaves the other dictionary empty.
+    a = make("apple", "banana", "cherry");
+    b = make("banana", "date");
+    b.remove("banana");
+    b.insert("banana", "yellow", 2);
+    a.union(b);
+    if (words(a).equals("apple\tbanana\tcherry\tdate\t") && a.findWord("banana").equals("yellow") &&
+        a.findType("banana") == 2 && b.size() == 0 && b.successor("").equals(""))
+      System.out.println("   Test 1 succeeded");
+    else System.out.println("***Test 1 failed");
+
+    // Test 2: intersection keeps only the shared words.
+    a = make("apple", "banana", "cherry", "date");
+    b = make("banana", "date", "elderberry");
+    a.intersection(b);
+    if (words(a).equals("banana\tdate\t") && a.size() == 2 && b.size() == 0)
+      System.out.println("   Test 2 succeeded");
+    else System.out.println("***Test 2 failed");
+
+    // Test 3: difference removes the shared words.
+    a = make("apple", "banana", "cherry", "date");
+    b = make("banana", "date", "elderberry");
+    a.difference(b);
+    if (words(a).equals("apple\tcherry\t") && a.findWord("banana").equals("") && b.size() == 0)
+      System.out.println("   Test 3 succeeded");
+    else System.out.println("***Test 3 failed");
+
+    // Test 4: the operations with an empty dictionary or the dictionary itself.
+    a = make("apple", "banana");
+    a.union(new TreapDictionary());
+    boolean empty = words(a).equals("apple\tbanana\t");
+    a.union(a);
+    a.intersection(a);
+    boolean self = words(a).equals("apple\tbanana\t");
+    a.difference(a);
+    if (empty && self && a.size() == 0)
+      System.out.println("   Test 4 succeeded");
+    else System.out.println("***Test 4 failed");
+
+    // Test 5: large dictionaries, built from words inserted in sorted order,
+    // match the same operations on a TreeMap.
+    Random random = new Random(42);
+    boolean matched = true;
+    for (int op = 0; op < 3; op++) {
+      TreeMap<String, String> x = new TreeMap<String, String>();
+      TreeMap<String, String> y = new TreeMap<String, String>();
+      for (int i = 0; i < 20000; i++) x.put(String.format("w%06d", random.nextInt(40000)), "x");
+      for (int i = 0; i < 20000; i++) y.put(String.format("w%06d", random.nextInt(40000)), "y");
+      a = make(x);
+      b = make(y);
+      if (op == 0) {
+        a.union(b);
+        x.putAll(y);
+      } else if (op == 1) {
+        a.intersection(b);
+        x.keySet().retainAll(y.keySet());
+      } else {
+        a.difference(b);
+        x.keySet().removeAll(y.keySet());
+      }
+      matched &= a.size() == x.size() && b.size() == 0;
+      StringBuilder expected = new StringBuilder();
+      for (Map.Entry<String, String> entry : x.entrySet()) {
+        expected.append(entry.getKey()).append('\t');
+        matched &= a.findWord(entry.getKey()).equals(entry.getValue());
+      }
+      matched &= words(a).equals(expected.toString());
+    }
+    if (matched)
+      System.out.println("   Test 5 succeeded");
+    else System.out.println("***Test 5 failed");
+  }
+
+  // Creates a dictionary with the words inserted in the order given.
+  private static TreapDictionary make(String... words) throws DictionaryException {
+    TreapDictionary dict = new TreapDictionary();
+    for (String word : words) dict.insert(word, "definition of " + word, 1);
+    return dict;
+  }
+
+  // Creates a dictionary holding the words and definitions of a map, in sorted order.
+  private static TreapDictionary make(Map<String, String> entries) throws DictionaryException {
+    TreapDictionary dict = new TreapDictionary();
+    for (Map.Entry<String, String> entry : entries.entrySet())
+      dict.insert(entry.getKey(), entry.getValue(), 1);
+    return dict;
+  }
+
+  // Lists every word in order by walking with successor.
+  private static String words(TreapDictionary dict) {
+    StringBuilder list = new StringBuilder();
+    String word = dict.successor("");
+    while (!word.equals("")) {
+      list.append(word).append('\t');
+      word = dict.successor(word);
+    }
+    return list.toString();
+  }
+}
@@ -0,0 +1,51 @@
+import java.awt.image.BufferedImage;
+import java.io.*;
+import java.net.URL;
+
+public class TimeImageLoader {
+
+  /*
+  ** Timing program for the ImageLoader class. Decodes each picture given
+  ** on the command line several times and prints how fast it went.
+  ** To run it type: java TimeImageLoader [-size WIDTHxHEIGHT] [-runs N] file...
+  */
+
+  public static void main(String[] args) throws IOException {
+    int maxWidth = Integer.MAX_VALUE, maxHeight = Integer.MAX_VALUE, runs = 20;
+    int first = 0;
+
+    // Reads the options.
+    while (first < args.length && args[first].startsWith("-")) {
+      if (args[first].equals("-size") && first + 1 < args.length) {
+        String[] size = args[first + 1].split("x");
+        maxWidth = Integer.parseInt(size[0]);
+        maxHeight = Integer.parseInt(size[1]);
+      } else if (args[first].equals("-runs") && first + 1 < args.length) {
+        runs = Integer.parseInt(args[first + 1]);
+      } else {
+        break;
+      }
+      first += 2;
+    }
+    if (first >= args.length) {
+      System.out.println("Usage: java TimeImageLoader [-size WIDTHxHEIGHT] [-runs N] file...");
+      return;
+    }
+
+    // Decodes every picture the given number of times, after one warm-up decode.
+    for (int i = first; i < args.length; i++) {
+      URL source = new File(args[i]).toURI().toURL();
+      BufferedImage image = ImageLoader.decode(source, maxWidth, maxHeight);
+      long pixels = 0;
+      long start = System.nanoTime();
+      for (int run = 0; run < runs; run++) {
+        image = ImageLoader.decode(source, maxWidth, maxHeight);
+        pixels += (long) image.getWidth() * image.getHeight();
+      }
+      double seconds = (System.nanoTime() - start) / 1e9;
+
+      System.out.printf("%s: %dx%d, %.1f decodes/s, %.1f Mpixels/s%n", args[i],
+          image.getWidth(), image.getHeight(), runs / seconds, pixels / seconds / 1e6);
+    }
+  }
+}
@@ -0,0 +1,454 @@
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Class that represents the dictionary as a treap: a binary search tree on the words
+ * that is also a heap on a random priority given to each node. Because the tree is
+ * expected to stay balanced however the words arrive, whole dictionaries can be split
+ * apart and joined together cheaply. This gives union, intersection and difference in
+ * expected O(m log(n/m + 1)) time for dictionaries of sizes m and n, with the two
+ * halves of each step run in parallel on a fork-join pool for large dictionaries.
+ */
+public class TreapDictionary implements OrderedDictionaryADT {
+	//Subtrees with fewer nodes than this between them are handled on one thread.
+	private static final int PARALLEL_THRESHOLD = 4096;
+	//The pool that runs the set operations.
+	private static final ForkJoinPool POOL = new ForkJoinPool();
+
+	//The root of the tree (null when the dictionary is empty).
+	private TreapNode root;
+
+	/**
+	 * Constructor that creates an empty dictionary.
+	 */
+	public TreapDictionary(){
+		root = null;
+	}
+
+	/**
+	 * Constructor that wraps an existing tree.
+	 * @param root The root of the tree.
+	 */
+	private TreapDictionary(TreapNode root){
+		this.root = root;
+	}
+
+	/**
+	 * Finds the definition of a word.
+	 * @param word The word in the dictionary.
+	 * @return The definition of the word, or the empty string if it is not present.
+	 */
+	public String findWord(String word){
+		TreapNode node = find(word);
+		if (node == null) return "";
+		return node.getElement().definition();
+	}
+
+	/**
+	 * Finds the type of a word.
+	 * @param word The word in the dictionary.
+	 * @return The type of the word, or -1 if it is not present.
+	 */
+	public int findType(String word){
+		TreapNode node = find(word);
+		if (node == null) return -1;
+		return node.getElement().type();
+	}
+
+	/**
+	 * Inserts a word, definition and type into the tree.
+	 * @param word The word that is being inserted.
+	 * @param definition The corresponding definition of the word.
+	 * @param type The corresponding type of the word.
+	 */
+	public void insert(String word, String definition, int type) throws DictionaryException {
+		//Looks if the word is already present. If it is, throws an exception.
+		if (find(word) != null) throw new DictionaryException("already present");
+
+		TreapNode node = new TreapNode(new DictEntry(word, definition, type));
+		root = insert(root, node);
+	}
+
+	/**
+	 * Removes a word from the tree.
+	 * @param word The word that is desired to be removed.
+	 */
+	public void remove(String word) throws DictionaryException {
+		//If the word isn't present, throws an exception.
+		if (find(word) == null) throw new DictionaryException("is not present.");
+		root = remove(root, word);
+	}
+
+	/**
+	 * Returns the smallest word in the dictionary that is greater than the given word or prefix.
+	 * @param word The word or prefix that will be used to find a successor.
+	 * @return The successor, or the empty string if there is none.
+	 */
+	public String successor(String word){
+		String best = "";
+		TreapNode current = root;
+
+		//Walks down the tree, remembering the last word passed that was greater.
+		while (current != null){
+			if (word.compareTo(current.getElement().word()) < 0){
+				best = current.getElement().word();
+				current = current.getLeft();
+			} else {
+				current = current.getRight();
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Returns the largest word in the dictionary that is smaller than the given word or prefix.
+	 * @param word The word or prefix that will be used to find a predecessor.
+	 * @return The predecessor, or the empty string if there is none.
+	 */
+	public String predecessor(String word){
+		String best = "";
+		TreapNode current = root;
+
+		//Walks down the tree, remembering the last word passed that was smaller.
+		while (current != null){
+			if (word.compareTo(current.getElement().word()) > 0){
+				best = current.getElement().word();
+				current = current.getRight();
+			} else {
+				current = current.getLeft();
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Returns the number of words in the dictionary.
+	 * @return The number of words.
+	 */
+	public int size(){
+		return size(root);
+	}
+
+	/**
+	 * Adds every word of another dictionary to this one. Where both dictionaries hold
+	 * the same word, the other dictionary's definition and type are kept. The other
+	 * dictionary's nodes are moved into this one rather than copied, so it is left
+	 * empty.
+	 * @param other The dictionary whose words are added.
+	 */
+	public void union(TreapDictionary other){
+		if (other == this) return;
+		root = POOL.invoke(new UnionTask(root, other.take(), true));
+	}
+
+	/**
+	 * Removes every word from this dictionary that is not also in another one. The
+	 * other dictionary is taken apart to find the shared words rather than copied,
+	 * so it is left empty.
+	 * @param other The dictionary whose words are kept.
+	 */
+	public void intersection(TreapDictionary other){
+		if (other == this) return;
+		root = POOL.invoke(new FilterTask(root, other.take(), true));
+	}
+
+	/**
+	 * Removes every word from this dictionary that is also in another one. The other
+	 * dictionary is taken apart to find the shared words rather than copied, so it is
+	 * left empty.
+	 * @param other The dictionary whose words are removed.
+	 */
+	public void difference(TreapDictionary other){
+		if (other == this){
+			root = null;
+			return;
+		}
+		root = POOL.invoke(new FilterTask(root, other.take(), false));
+	}
+
+	/**
+	 * Splits the dictionary in two at a word. This dictionary keeps every word that is
+	 * smaller than the given word and the rest are moved to a new dictionary.
+	 * @param word The word to split at. It does not have to be in the dictionary.
+	 * @return A dictionary holding every word greater than or equal to the given word.
+	 */
+	public TreapDictionary splitAt(String word){
+		Split parts = new Split();
+		split(root, word, parts);
+		root = parts.left;
+
+		//The word itself, if present, goes with the greater half.
+		TreapNode upper = parts.right;
+		if (parts.middle != null) upper = join(parts.middle, upper);
+		return new TreapDictionary(upper);
+	}
+
+	/**
+	 * Helper method that finds the node holding a word.
+	 * @param word The word being searched for.
+	 * @return The node holding the word, or null if it is not present.
+	 */
+	private TreapNode find(String word){
+		TreapNode current = root;
+		while (current != null){
+			int compare = word.compareTo(current.getElement().word());
+			if (compare == 0) return current;
+			current = (compare < 0) ? current.getLeft() : current.getRight();
+		}
+		return null;
+	}
+
+	/**
+	 * Helper method that takes every node out of the dictionary, leaving it empty.
+	 * @return The root of the tree that was held.
+	 */
+	private TreapNode take(){
+		TreapNode tree = root;
+		root = null;
+		return tree;
+	}
+
+	/**
+	 * Helper method that decides which of two nodes belongs higher in the tree. Ties
+	 * in priority are broken by the words so the order is always the same.
+	 * @param a The first node.
+	 * @param b The second node.
+	 * @return True if a belongs above b.
+	 */
+	private static boolean higher(TreapNode a, TreapNode b){
+		if (a.getPriority() != b.getPriority()) return a.getPriority() > b.getPriority();
+		return a.getElement().word().compareTo(b.getElement().word()) < 0;
+	}
+
+	/**
+	 * Helper method that gets the size of a subtree.
+	 * @param node The root of the subtree.
+	 * @return The number of nodes in the subtree.
+	 */
+	private static int size(TreapNode node){
+		return (node == null) ? 0 : node.getSize();
+	}
+
+	/**
+	 * Helper method that inserts a node into a subtree.
+	 * @param tree The root of the subtree.
+	 * @param node The new node.
+	 * @return The new root of the subtree.
+	 */
+	private static TreapNode insert(TreapNode tree, TreapNode node){
+		if (tree == null) return node;
+
+		//The new node takes this place if it belongs higher, with the subtree split beneath it.
+		if (higher(node, tree)){
+			Split parts = new Split();
+			split(tree, node.getElement().word(), parts);
+			node.setLeft(parts.left);
+			node.setRight(parts.right);
+			node.update();
+			return node;
+		}
+
+		//Otherwise, goes down the side the word belongs on.
+		if (node.getElement().word().compareTo(tree.getElement().word()) < 0){
+			tree.setLeft(insert(tree.getLeft(), node));
+		} else {
+			tree.setRight(insert(tree.getRight(), node));
+		}
+		tree.update();
+		return tree;
+	}
+
+	/**
+	 * Helper method that removes a word from a subtree. The word must be present.
+	 * @param tree The root of the subtree.
+	 * @param word The word to remove.
+	 * @return The new root of the subtree.
+	 */
+	private static TreapNode remove(TreapNode tree, String word){
+		int compare = word.compareTo(tree.getElement().word());
+
+		//The node is replaced by its two children joined together.
+		if (compare == 0) return join(tree.getLeft(), tree.getRight());
+
+		if (compare < 0){
+			tree.setLeft(remove(tree.getLeft(), word));
+		} else {
+			tree.setRight(remove(tree.getRight(), word));
+		}
+		tree.update();
+		return tree;
+	}
+
+	/**
+	 * Helper method that splits a subtree into the words smaller than a given word, the
+	 * node holding the word itself and the words greater than it. The subtree is taken
+	 * apart in the process.
+	 * @param tree The root of the subtree.
+	 * @param word The word to split at.
+	 * @param out Where the three parts are placed.
+	 */
+	private static void split(TreapNode tree, String word, Split out){
+		//An empty tree splits into nothing.
+		if (tree == null){
+			out.left = null;
+			out.middle = null;
+			out.right = null;
+			return;
+		}
+
+		int compare = word.compareTo(tree.getElement().word());
+		if (compare == 0){
+			//This is the word itself, so its children are the two halves.
+			out.left = tree.getLeft();
+			out.right = tree.getRight();
+			out.middle = tree;
+			tree.setLeft(null);
+			tree.setRight(null);
+			tree.update();
+		} else if (compare < 0){
+			//This node and its right side are greater than the word.
+			split(tree.getLeft(), word, out);
+			tree.setLeft(out.right);
+			tree.update();
+			out.right = tree;
+		} else {
+			//This node and its left side are smaller than the word.
+			split(tree.getRight(), word, out);
+			tree.setRight(out.left);
+			tree.update();
+			out.left = tree;
+		}
+	}
+
+	/**
+	 * Helper method that joins two subtrees where every word of the first is smaller
+	 * than every word of the second.
+	 * @param smaller The root of the subtree with the smaller words.
+	 * @param greater The root of the subtree with the greater words.
+	 * @return The root of the joined tree.
+	 */
+	private static TreapNode join(TreapNode smaller, TreapNode greater){
+		if (smaller == null) return greater;
+		if (greater == null) return smaller;
+
+		//Whichever root belongs higher stays on top.
+		if (higher(smaller, greater)){
+			smaller.setRight(join(smaller.getRight(), greater));
+			smaller.update();
+			return smaller;
+		}
+		greater.setLeft(join(smaller, greater.getLeft()));
+		greater.update();
+		return greater;
+	}
+
+	/**
+	 * Class that holds the three parts of a split.
+	 */
+	private static class Split {
+		private TreapNode left;
+		private TreapNode middle;
+		private TreapNode right;
+	}
+
+	/**
+	 * Task that merges two subtrees into one. The root that belongs higher is kept and
+	 * the other subtree is split around it, then both sides are merged in parallel.
+	 */
+	private static class UnionTask extends RecursiveTask<TreapNode> {
+		private static final long serialVersionUID = 1L;
+		private TreapNode a;
+		private TreapNode b;
+		//Whether b's entry is kept when both subtrees hold the same word.
+		private boolean preferB;
+
+		public UnionTask(TreapNode a, TreapNode b, boolean preferB){
+			this.a = a;
+			this.b = b;
+			this.preferB = preferB;
+		}
+
+		protected TreapNode compute(){
+			if (a == null) return b;
+			if (b == null) return a;
+
+			//Makes sure a is the root that belongs on top.
+			if (higher(b, a)){
+				TreapNode temp = a;
+				a = b;
+				b = temp;
+				preferB = !preferB;
+			}
+
+			//Splits the other subtree around the root's word.
+			Split parts = new Split();
+			split(b, a.getElement().word(), parts);
+			if (parts.middle != null && preferB) a.setElement(parts.middle.getElement());
+
+			//Merges the two sides, in parallel if they are big enough.
+			UnionTask left = new UnionTask(a.getLeft(), parts.left, preferB);
+			UnionTask right = new UnionTask(a.getRight(), parts.right, preferB);
+			if (a.getSize() + size(b) > PARALLEL_THRESHOLD){
+				left.fork();
+				a.setRight(right.compute());
+				a.setLeft(left.join());
+			} else {
+				a.setLeft(left.compute());
+				a.setRight(right.compute());
+			}
+			a.update();
+			return a;
+		}
+	}
+
+	/**
+	 * Task that keeps the words of one subtree that are (or are not) in another. The
+	 * second subtree is split around each root of the first and both sides are
+	 * filtered in parallel.
+	 */
+	private static class FilterTask extends RecursiveTask<TreapNode> {
+		private static final long serialVersionUID = 1L;
+		private TreapNode a;
+		private TreapNode b;
+		//True to keep the words found in b, false to keep the words not found in b.
+		private boolean keepShared;
+
+		public FilterTask(TreapNode a, TreapNode b, boolean keepShared){
+			this.a = a;
+			this.b = b;
+			this.keepShared = keepShared;
+		}
+
+		protected TreapNode compute(){
+			if (a == null) return null;
+			if (b == null) return keepShared ? null : a;
+
+			//Splits the other subtree around the root's word.
+			Split parts = new Split();
+			split(b, a.getElement().word(), parts);
+			boolean shared = parts.middle != null;
+
+			//Filters the two sides, in parallel if they are big enough.
+			FilterTask left = new FilterTask(a.getLeft(), parts.left, keepShared);
+			FilterTask right = new FilterTask(a.getRight(), parts.right, keepShared);
+			TreapNode leftTree, rightTree;
+			if (a.getSize() + size(b) > PARALLEL_THRESHOLD){
+				left.fork();
+				rightTree = right.compute();
+				leftTree = left.join();
+			} else {
+				leftTree = left.compute();
+				rightTree = right.compute();
+			}
+
+			//Either keeps the root above the two sides or joins them without it.
+			if (shared == keepShared){
+				a.setLeft(leftTree);
+				a.setRight(rightTree);
+				a.update();
+				return a;
+			}
+			return TreapDictionary.join(leftTree, rightTree);
+		}
+	}
+}
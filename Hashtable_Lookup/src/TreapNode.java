@@ -0,0 +1,102 @@
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * This class codes for a single node in a treap. Along with its element and its left
+ * and right children, each node holds a priority that decides its height in the tree
+ * and the number of nodes in its subtree.
+ */
+public class TreapNode {
+	//The element that is held at that node.
+	private DictEntry element;
+	//The random priority of the node. A node's priority is never lower than its children's.
+	private int priority;
+	//The number of nodes in the subtree rooted at this node.
+	private int size;
+	//The left child.
+	private TreapNode left;
+	//The right child.
+	private TreapNode right;
+
+	/**
+	 * Constructor that sets up a node with no children and a random priority.
+	 * @param element The element that will be stored.
+	 */
+	public TreapNode(DictEntry element){
+		this.element = element;
+		this.priority = ThreadLocalRandom.current().nextInt();
+		this.size = 1;
+	}
+
+	/**
+	 * Sets the element of the node to a new element.
+	 * @param element The new element.
+	 */
+	public void setElement(DictEntry element){
+		this.element = element;
+	}
+	/**
+	 * Gets the element that is stored in the node.
+	 * @return The element that is stored.
+	 */
+	public DictEntry getElement(){
+		return element;
+	}
+
+	/**
+	 * Gets the priority of the node.
+	 * @return The priority of the node.
+	 */
+	public int getPriority(){
+		return priority;
+	}
+
+	/**
+	 * Gets the number of nodes in the subtree rooted at this node.
+	 * @return The size of the subtree.
+	 */
+	public int getSize(){
+		return size;
+	}
+
+	/**
+	 * Sets the left child of the current node. The size is not updated until
+	 * update() is called.
+	 * @param temp The new left child.
+	 */
+	public void setLeft(TreapNode temp){
+		left = temp;
+	}
+	/**
+	 * Gets the left child of the current node.
+	 * @return The left child of the node.
+	 */
+	public TreapNode getLeft(){
+		return left;
+	}
+
+	/**
+	 * Sets the right child of the current node. The size is not updated until
+	 * update() is called.
+	 * @param temp The new right child.
+	 */
+	public void setRight(TreapNode temp){
+		right = temp;
+	}
+	/**
+	 * Gets the right child of the current node.
+	 * @return The right child of the node.
+	 */
+	public TreapNode getRight(){
+		return right;
+	}
+
+	/**
+	 * Recalculates the size of this node's subtree from the sizes of its children.
+	 * Must be called whenever a child changes.
+	 */
+	public void update(){
+		size = 1;
+		if (left != null) size += left.size;
+		if (right != null) size += right.size;
+	}
+}
@@ -0,0 +1,259 @@
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Class that holds what MinimaxEngine and NegamaxEngine share: the budget, the loop
+ * that searches one level deeper at a time, and the scoring of boards where the
+ * search stops. Each engine only supplies the search of the top of the tree.
+ *
+ * Scores are always the computer's: HUMAN_WINS, UNDECIDED, a draw and COMPUTER_WINS,
+ * times the scale when unfinished boards are scored by the open windows each player
+ * has (see TicTacToe.evalBoard(int)).
+ */
+public abstract class AlphaBetaEngine implements GameEngine {
+	protected static final char COMPUTER = 'O';
+	protected static final char HUMAN = 'X';
+	//The score just below the real ones, that every search starts with.
+	protected static final int LOWEST = -1;
+	//Scores that end the search, since a win or a loss that was found can't change.
+	protected static final int HUMAN_WINS = 0;
+	protected static final int UNDECIDED = 1;
+	protected static final int COMPUTER_WINS = 3;
+	//Returned by horizonScore when the board has to be searched further.
+	protected static final int UNSCORED = -1;
+	//The number of positions looked at between reads of the clock.
+	protected static final int CHECK_INTERVAL = 1024;
+	//The most threats followed past the deepest level when looking for a forced win.
+	private static final int THREAT_DEPTH = 2;
+
+	protected int boardSize; //The size of the board (n).
+	protected int maxLevel; //The deepest level that is searched.
+	protected int tableSize; //The size of the transposition table in megabytes.
+	private long timeBudget; //The milliseconds a move may take (0 for no limit).
+	private long nodeBudget; //The positions a move may look at (0 for no limit).
+	protected int scale = 1; //How much finer the scores are than the game's.
+	protected int computerWins = COMPUTER_WINS; //A computer win on that scale.
+	protected int ceiling = COMPUTER_WINS + 1; //The score just above the real ones, that every search starts with.
+	protected boolean threats; //Whether forced plays are found without searching.
+	private int lastScore = LOWEST; //The score of the last move chosen (LOWEST before the first).
+
+	//What the move being chosen has got to.
+	protected TranspositionTableADT configurations; //Scores of searched configurations.
+	protected int searchLevel; //The deepest level of the current iteration.
+	private long deadline; //The time the move must end by.
+	protected volatile boolean aborted; //Set when the budget has run out.
+	protected AtomicLong nodes = new AtomicLong(); //The positions looked at so far.
+	private int depthReached; //The number of levels the last move was searched to.
+
+	/**
+	 * Constructor that sets up a search with no budget.
+	 * @param size The size of the board (n).
+	 * @param depth The deepest level that is searched.
+	 * @param megabytes The size of the transposition table in megabytes.
+	 */
+	protected AlphaBetaEngine(int size, int depth, int megabytes){
+		boardSize = size;
+		maxLevel = depth;
+		tableSize = megabytes;
+	}
+
+	/**
+	 * Limits how long the computer may think about a move. Once either budget runs
+	 * out, the move found by the last level that was finished is played. On one
+	 * thread the position budget is exact.
+	 * @param milliseconds The time a move may take (0 for no limit).
+	 * @param positions The number of positions a move may look at (0 for no limit).
+	 */
+	public void setBudget(long milliseconds, long positions){
+		timeBudget = milliseconds;
+		nodeBudget = positions;
+	}
+
+	/**
+	 * Sets whether boards at the deepest level that aren't finished are scored by the
+	 * open windows each player has, instead of all alike. Tells a strong position from
+	 * a weak one, so a shallower search plays as well.
+	 * @param on True to score unfinished boards.
+	 */
+	public void setHeuristic(boolean on){
+		scale = on ? WindowEvaluator.SCALE : 1;
+		computerWins = COMPUTER_WINS * scale;
+		ceiling = computerWins + 1;
+		lastScore = LOWEST;
+	}
+
+	/**
+	 * Sets whether forced plays are found without searching. A player who can win,
+	 * must block or can make two threats at once only has that play searched, a
+	 * board where a player is certain to win is not searched at all, and the deepest
+	 * level looks for wins made only of threats.
+	 * @param on True to find forced plays.
+	 */
+	public void setThreats(boolean on){
+		threats = on;
+	}
+
+	/**
+	 * Chooses the computer's move. With a budget, searches one level deeper at a time
+	 * until the deepest level or the end of the game is reached or the budget runs
+	 * out. Each level stores its best move in the table, so the next one tries it
+	 * first. Without a budget the deepest level is searched straight away, since the
+	 * shallower ones would only add work.
+	 * @param t The game board.
+	 * @return The move found by the last level that was finished.
+	 */
+	public PosPlay chooseMove(TicTacToe t){
+		PosPlay best = null, pos;
+
+		//Keeps the table from earlier moves and games, but lets this move replace its entries first.
+		t.useHeuristic(scale > 1);
+		t.useThreats(threats);
+		//On a large board only the squares near played ones are searched.
+		t.useCandidates(boardSize >= CandidateSet.MIN_BOARD_SIZE);
+		start(t);
+		configurations.newSearch();
+
+		int empty = 0;
+		for (int s = t.nextEmpty(0); s != -1; s = t.nextEmpty(s + 1)){
+			empty++;
+		}
+
+		nodes.set(0);
+		aborted = false;
+		deadline = (timeBudget > 0) ? System.currentTimeMillis() + timeBudget : Long.MAX_VALUE;
+
+		int guess = lastScore;
+		searchLevel = (timeBudget > 0 || nodeBudget > 0) ? 0 : maxLevel;
+		for (; searchLevel <= maxLevel; searchLevel++){
+			pos = searchRoot(t, guess);
+			if (aborted) break;
+			best = pos;
+			guess = best.getScore();
+			t.insertConfig(configurations, best, searchLevel + 1, LOWEST, ceiling);
+
+			//Nothing is left to find once the search reaches the end of the game.
+			if (best.getScore() == HUMAN_WINS || best.getScore() == computerWins || searchLevel + 1 >= empty){
+				searchLevel++;
+				break;
+			}
+		}
+
+		lastScore = best.getScore();
+		depthReached = Math.min(searchLevel, empty);
+		return best;
+	}
+
+	/**
+	 * Gets the number of positions looked at while choosing the last move.
+	 * @return The number of positions.
+	 */
+	public long getNodes(){
+		return nodes.get();
+	}
+
+	/**
+	 * Gets the number of levels the last move was searched to.
+	 * @return The number of levels.
+	 */
+	public int getDepth(){
+		return depthReached;
+	}
+
+	/**
+	 * Sees if the last move was cut short by the budget.
+	 * @return True if the budget ran out.
+	 */
+	public boolean wasStopped(){
+		return aborted;
+	}
+
+	/**
+	 * Describes the last move's search by its size and effective branching factor b,
+	 * where b + b^2 + ... + b^d = positions for the d levels that were searched.
+	 * @return One line about the last move's search.
+	 */
+	public String describeSearch(){
+		long positions = getNodes();
+		int levels = getDepth();
+		return "Searched " + positions + " positions to depth " + levels +
+			", effective branching factor " + String.format("%.2f", branchingFactor(positions, levels)) +
+			(wasStopped() ? " (stopped by budget)" : "");
+	}
+
+	/**
+	 * Gets ready to choose a new move: sets configurations to the table the search
+	 * uses and readies the move orderings.
+	 * @param t The game board.
+	 */
+	protected abstract void start(TicTacToe t);
+
+	/**
+	 * Searches the computer's plays at the top of the tree to searchLevel levels.
+	 * @param t The game board.
+	 * @param guess The score of the last level or move (LOWEST if there isn't one).
+	 * @return The best play and its score. Not used if the budget ran out.
+	 */
+	protected abstract PosPlay searchRoot(TicTacToe t, int guess);
+
+	/**
+	 * Scores the board after a play if the search stops there: when the game is over
+	 * (or, with threats, certain to be won) or the deepest level has been reached.
+	 * Threats are only followed past the deepest level.
+	 * @param t The board, with the play stored.
+	 * @param opponent The player about to reply, either an X or an O.
+	 * @param level The level of the play.
+	 * @return The computer's score, or UNSCORED if the board must be searched further.
+	 */
+	protected int horizonScore(TicTacToe t, char opponent, int level){
+		int status = t.evalBoard();
+		if (status == UNDECIDED && threats){
+			status = t.threatStatus(opponent, (level >= searchLevel) ? THREAT_DEPTH : 0);
+		}
+		if (status != UNDECIDED) return status * scale;
+		if (level >= searchLevel) return t.evalBoard(scale);
+		return UNSCORED;
+	}
+
+	/**
+	 * Counts a position and checks the budget. Only reads the clock every so often.
+	 * The first level is always finished so there is a move to play.
+	 * @return True if the search should give up.
+	 */
+	protected boolean outOfBudget(){
+		long total = nodes.incrementAndGet();
+		return overBudget(total, total % CHECK_INTERVAL == 0);
+	}
+
+	/**
+	 * Checks the budget against the positions counted so far.
+	 * @param total The number of positions counted.
+	 * @param clock True to read the clock as well.
+	 * @return True if the search should give up.
+	 */
+	protected boolean overBudget(long total, boolean clock){
+		if (searchLevel != 0 && ((nodeBudget > 0 && total >= nodeBudget) ||
+				(clock && System.currentTimeMillis() > deadline))){
+			aborted = true;
+		}
+		return aborted;
+	}
+
+	/**
+	 * Helper method that finds the branching factor b with b + b^2 + ... + b^levels = positions.
+	 * @param positions The number of positions searched.
+	 * @param levels The number of levels searched.
+	 * @return The branching factor.
+	 */
+	private static double branchingFactor(long positions, int levels){
+		double low = 1, high = Math.max(2, positions);
+		if (levels <= 0 || positions <= levels) return 1;
+		for (int i = 0; i < 100; i++){
+			double b = (low + high) / 2, total = 0, power = 1;
+			for (int l = 0; l < levels && total <= positions; l++){
+				power *= b;
+				total += power;
+			}
+			if (total > positions) high = b; else low = b;
+		}
+		return low;
+	}
+}
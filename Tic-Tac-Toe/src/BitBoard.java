@@ -0,0 +1,194 @@
+/**
+ * Abstract class for a Tic-Tac-Toe board that is stored as bits. Each player has a
+ * set of bits with one bit for every square, numbered row by row (row * n + column).
+ * A win is found by shifting a player's bits along a direction and masking off the
+ * squares that would wrap around onto the next row, so no strings are ever built.
+ */
+public abstract class BitBoard {
+	//The player numbers used by the board.
+	public static final int HUMAN = 0; //The player that plays X.
+	public static final int COMPUTER = 1; //The player that plays O.
+	public static final int EMPTY = -1; //Returned for a square nobody has played.
+
+	//The four directions a line can run in (right, down, down-right, down-left).
+	protected static final int[] ROW_STEP = {0, 1, 1, 1};
+	protected static final int[] COL_STEP = {1, 0, 1, -1};
+
+	protected final int size; //The size of the board (n).
+	protected final int squares; //The number of squares on the board (n * n).
+	protected final int[] shifts; //How far a bit moves for one step in each direction.
+	protected int toWin; //The number of squares in a line needed to win (k).
+
+	/**
+	 * Constructor that sets up the sizes shared by every bitboard.
+	 * @param size The size of the board (n).
+	 * @param toWin The number of squares in a line needed to win (k).
+	 */
+	protected BitBoard(int size, int toWin){
+		this.size = size;
+		this.squares = size * size;
+		this.toWin = toWin;
+
+		//A step right moves one bit, a step down moves a whole row.
+		this.shifts = new int[ROW_STEP.length];
+		for (int d = 0; d < shifts.length; d++){
+			shifts[d] = ROW_STEP[d] * size + COL_STEP[d];
+		}
+	}
+
+	/**
+	 * Creates an empty board. Boards of up to 8x8 fit in a single long per player.
+	 * @param size The size of the board (n).
+	 * @param toWin The number of squares in a line needed to win (k).
+	 * @return The new board.
+	 */
+	public static BitBoard create(int size, int toWin){
+		if (size * size <= Long.SIZE) return new SmallBitBoard(size, toWin);
+		return new LargeBitBoard(size, toWin);
+	}
+
+	/**
+	 * Gets the size of the board (n).
+	 * @return The size of the board.
+	 */
+	public int getSize(){
+		return size;
+	}
+	/**
+	 * Gets the number of squares on the board (n * n).
+	 * @return The number of squares.
+	 */
+	public int getSquares(){
+		return squares;
+	}
+	/**
+	 * Gets the number of squares in a line needed to win (k).
+	 * @return The number of squares needed to win.
+	 */
+	public int getWinAmount(){
+		return toWin;
+	}
+	/**
+	 * Sets the number of squares in a line needed to win (k).
+	 * @param toWin The new number of squares needed to win.
+	 */
+	public void setWinAmount(int toWin){
+		this.toWin = toWin;
+	}
+
+	/**
+	 * Helper method that sees if one step from a square in a direction stays on the
+	 * board. Used by the subclasses to build their direction masks.
+	 * @param square The square the step starts from.
+	 * @param d The direction of the step.
+	 * @return True if the step lands on the board without wrapping.
+	 */
+	protected boolean stepsOnBoard(int square, int d){
+		int row = square / size + ROW_STEP[d];
+		int col = square % size + COL_STEP[d];
+		return row >= 0 && row < size && col >= 0 && col < size;
+	}
+
+	/**
+	 * Gets who has played in a square.
+	 * @param square The square (row * n + column).
+	 * @return HUMAN, COMPUTER or EMPTY.
+	 */
+	public abstract int get(int square);
+
+	/**
+	 * Marks a square as played by a player.
+	 * @param square The square (row * n + column).
+	 * @param player HUMAN or COMPUTER.
+	 */
+	public abstract void set(int square, int player);
+
+	/**
+	 * Empties a square.
+	 * @param square The square (row * n + column).
+	 */
+	public abstract void clear(int square);
+
+	/**
+	 * Sees if a player has k squares in a row, column or diagonal.
+	 * @param player HUMAN or COMPUTER.
+	 * @return True if the player has won.
+	 */
+	public abstract boolean hasWin(int player);
+
+	/**
+	 * Counts the squares nobody has played.
+	 * @return The number of empty squares.
+	 */
+	public abstract int emptyCount();
+
+	/**
+	 * Finds the first empty square at or after a square, in row by row order.
+	 * @param from The square to start looking from.
+	 * @return The empty square, or -1 if there are none left.
+	 */
+	public abstract int nextEmpty(int from);
+
+	/**
+	 * Makes an independent copy of the board.
+	 * @return The copy.
+	 */
+	public abstract BitBoard copy();
+
+	/**
+	 * Sees if a player has k in a row on one of the four lines through a square.
+	 * Only the squares within k of the given one are looked at, so this takes O(k).
+	 * @param square The square the lines pass through (row * n + column).
+	 * @param player HUMAN or COMPUTER.
+	 * @return True if the player has won on a line through the square.
+	 */
+	public boolean winsThrough(int square, int player){
+		for (int d = 0; d < ROW_STEP.length; d++){
+			if (1 + runThrough(square, player, d) >= toWin) return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Counts a player's squares that touch a square in an unbroken line, on both sides
+	 * of it. The square itself isn't counted, and counting stops at k - 1.
+	 * @param square The square the line passes through (row * n + column).
+	 * @param player HUMAN or COMPUTER.
+	 * @param d The direction of the line (0 to 3).
+	 * @return The number of the player's squares next to it along the line.
+	 */
+	public int runThrough(int square, int player, int d){
+		int row = square / size;
+		int col = square % size;
+
+		//Counts going forwards and then backwards along the line.
+		int run = 0;
+		for (int sign = 1; sign >= -1 && run < toWin - 1; sign -= 2){
+			int r = row + sign * ROW_STEP[d];
+			int c = col + sign * COL_STEP[d];
+			while (run < toWin - 1 && r >= 0 && r < size && c >= 0 && c < size
+					&& get(r * size + c) == player){
+				run++;
+				r += sign * ROW_STEP[d];
+				c += sign * COL_STEP[d];
+			}
+		}
+		return run;
+	}
+
+	/**
+	 * Gets the number of directions a line can run in.
+	 * @return The number of directions (right, down and the two diagonals).
+	 */
+	public static int directions(){
+		return ROW_STEP.length;
+	}
+
+	/**
+	 * Sees if every square has been played.
+	 * @return True if the board is full.
+	 */
+	public boolean isFull(){
+		return nextEmpty(0) == -1;
+	}
+}
@@ -0,0 +1,130 @@
+/**
+ * Class that keeps the squares worth searching on a large board: the empty squares
+ * within a few squares of one already played. In k-in-a-row games a play far from
+ * every other one hardly ever matters, so on a 15x15 or 19x19 board the search only
+ * tries a few dozen squares instead of hundreds. A square that wins or blocks is
+ * always next to a played square, so no forced play is ever left out.
+ *
+ * Every square keeps how many played squares are near it, and the squares that are
+ * empty with a count above 0 are kept as bits, so they can be listed in order
+ * without looking at the others. Only the squares near the one played change, so
+ * keeping them up to date takes O(d^2) for every play.
+ */
+public class CandidateSet {
+	//Boards at least this size only have their candidates searched; smaller ones are
+	//searched in full.
+	public static final int MIN_BOARD_SIZE = 10;
+	//How far (in rows or columns) a candidate may be from a played square.
+	public static final int DISTANCE = 2;
+
+	private int size; //The size of the board (n).
+	private int distance; //How far a candidate may be from a played square.
+	private int[] near; //The number of played squares near each square.
+	private boolean[] played; //Whether each square has been played.
+	private long[] bits; //The candidates, 64 squares to a long.
+	private int stones; //The number of played squares.
+
+	/**
+	 * Constructor that finds the candidates of a board.
+	 * @param board The game board.
+	 * @param distance How far a candidate may be from a played square.
+	 */
+	public CandidateSet(BitBoard board, int distance){
+		int squares = board.getSquares();
+		size = board.getSize();
+		this.distance = distance;
+		near = new int[squares];
+		played = new boolean[squares];
+		bits = new long[(squares + 63) / 64];
+		for (int square = 0; square < squares; square++){
+			if (board.get(square) != BitBoard.EMPTY) add(square);
+		}
+	}
+
+	/**
+	 * Constructor that copies another set, so it can follow a copy of the game.
+	 * @param other The set to copy.
+	 */
+	public CandidateSet(CandidateSet other){
+		size = other.size;
+		distance = other.distance;
+		near = other.near.clone();
+		played = other.played.clone();
+		bits = other.bits.clone();
+		stones = other.stones;
+	}
+
+	/**
+	 * Counts a play.
+	 * @param square The square that was played.
+	 */
+	public void add(int square){
+		played[square] = true;
+		stones++;
+		mark(square, false);
+		change(square, 1);
+	}
+
+	/**
+	 * Takes back a play.
+	 * @param square The square that is being emptied.
+	 */
+	public void remove(int square){
+		played[square] = false;
+		stones--;
+		change(square, -1);
+	}
+
+	/**
+	 * Finds the first candidate at or after a square, going row by row. With nothing
+	 * played yet, the only candidate is the centre.
+	 * @param from The square to start looking from (row * n + column).
+	 * @return The candidate (row * n + column), or -1 if there are none left.
+	 */
+	public int next(int from){
+		if (stones == 0){
+			int centre = (size / 2) * size + size / 2;
+			return (from <= centre) ? centre : -1;
+		}
+
+		int word = from >>> 6;
+		if (word >= bits.length) return -1;
+		long left = bits[word] & (-1L << (from & 63));
+		while (left == 0){
+			if (++word == bits.length) return -1;
+			left = bits[word];
+		}
+		return (word << 6) + Long.numberOfTrailingZeros(left);
+	}
+
+	/**
+	 * Helper method that changes the count of every square near a square, and marks
+	 * the ones that become or stop being candidates.
+	 * @param square The square played or taken back.
+	 * @param by 1 for a play, -1 for taking one back.
+	 */
+	private void change(int square, int by){
+		int row = square / size;
+		int col = square % size;
+		for (int r = Math.max(0, row - distance); r <= Math.min(size - 1, row + distance); r++){
+			for (int c = Math.max(0, col - distance); c <= Math.min(size - 1, col + distance); c++){
+				int other = r * size + c;
+				near[other] += by;
+				if (!played[other]) mark(other, near[other] > 0);
+			}
+		}
+	}
+
+	/**
+	 * Helper method that sets or clears a square's bit.
+	 * @param square The square.
+	 * @param in True if the square is a candidate.
+	 */
+	private void mark(int square, boolean in){
+		if (in){
+			bits[square >>> 6] |= 1L << (square & 63);
+		} else {
+			bits[square >>> 6] &= ~(1L << (square & 63));
+		}
+	}
+}
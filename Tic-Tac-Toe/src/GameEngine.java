@@ -0,0 +1,64 @@
+/**
+ * Interface for the ways the computer can choose its move. The game board is only
+ * changed while the move is being chosen, and is left as it was given.
+ */
+public interface GameEngine {
+	/**
+	 * Chooses the computer's (O's) next play.
+	 * @param t The game board, with the human's last play already stored.
+	 * @return The play and the score it was given.
+	 */
+	public PosPlay chooseMove(TicTacToe t);
+
+	/**
+	 * Limits how long the computer may think about a move. A budget of 0 means no limit.
+	 * @param milliseconds The time a move may take.
+	 * @param positions The number of positions a move may look at.
+	 */
+	public void setBudget(long milliseconds, long positions);
+
+	/**
+	 * Sets how many threads the search uses.
+	 * @param threads The number of threads (0 for one per core).
+	 */
+	public void setThreads(int threads);
+
+	/**
+	 * Sets whether unfinished boards at the deepest level are scored by how close
+	 * each player is to winning, instead of all alike.
+	 * @param on True to score unfinished boards.
+	 */
+	public void setHeuristic(boolean on);
+
+	/**
+	 * Sets whether plays that are forced (a win, a block or two threats at once) are
+	 * found without searching, and wins made only of threats are looked for past the
+	 * deepest level.
+	 * @param on True to find forced plays.
+	 */
+	public void setThreats(boolean on);
+
+	/**
+	 * Gets the number of positions looked at while choosing the last move.
+	 * @return The number of positions.
+	 */
+	public long getNodes();
+
+	/**
+	 * Gets the number of levels the last move was searched to.
+	 * @return The number of levels.
+	 */
+	public int getDepth();
+
+	/**
+	 * Sees if the last move was cut short by the budget.
+	 * @return True if the budget ran out.
+	 */
+	public boolean wasStopped();
+
+	/**
+	 * Describes how the last move was chosen, for the player to read.
+	 * @return One line about the last move's search.
+	 */
+	public String describeSearch();
+}
@@ -0,0 +1,147 @@
+/**
+ * Bitboard for boards larger than 8x8. Every player's squares are kept in an array of
+ * longs, and shifts carry bits across from one long to the next.
+ */
+public class LargeBitBoard extends BitBoard {
+	private long[][] stones; //The squares each player has played, indexed by player.
+	private long[][] masks; //The squares a step in each direction can be taken from.
+	private long[] full; //A bit for every square on the board.
+	private long[] run; //Scratch space for the runs found so far.
+	private long[] shifted; //Scratch space for the shifted runs.
+
+	/**
+	 * Constructor that creates an empty board.
+	 * @param size The size of the board (n).
+	 * @param toWin The number of squares in a line needed to win (k).
+	 */
+	public LargeBitBoard(int size, int toWin){
+		super(size, toWin);
+		int words = (squares + Long.SIZE - 1) / Long.SIZE;
+
+		stones = new long[2][words];
+		full = new long[words];
+		for (int square = 0; square < squares; square++){
+			full[square >>> 6] |= 1L << square;
+		}
+
+		//Works out the squares that won't wrap onto another row for each direction.
+		masks = new long[shifts.length][words];
+		for (int d = 0; d < masks.length; d++){
+			for (int square = 0; square < squares; square++){
+				if (stepsOnBoard(square, d)) masks[d][square >>> 6] |= 1L << square;
+			}
+		}
+
+		run = new long[words];
+		shifted = new long[words];
+	}
+
+	/**
+	 * Constructor that copies another board.
+	 * @param other The board to copy.
+	 */
+	private LargeBitBoard(LargeBitBoard other){
+		super(other.size, other.toWin);
+		stones = new long[][] {other.stones[HUMAN].clone(), other.stones[COMPUTER].clone()};
+		masks = other.masks;
+		full = other.full;
+		run = new long[full.length];
+		shifted = new long[full.length];
+	}
+
+	public int get(int square){
+		int word = square >>> 6;
+		long bit = 1L << square;
+		if ((stones[HUMAN][word] & bit) != 0) return HUMAN;
+		if ((stones[COMPUTER][word] & bit) != 0) return COMPUTER;
+		return EMPTY;
+	}
+
+	public void set(int square, int player){
+		int word = square >>> 6;
+		long bit = 1L << square;
+		stones[player][word] |= bit;
+		stones[1 - player][word] &= ~bit;
+	}
+
+	public void clear(int square){
+		int word = square >>> 6;
+		long bit = ~(1L << square);
+		stones[HUMAN][word] &= bit;
+		stones[COMPUTER][word] &= bit;
+	}
+
+	public boolean hasWin(int player){
+		long[] played = stones[player];
+
+		//For each direction, keeps the squares that start a run one longer each time.
+		for (int d = 0; d < shifts.length; d++){
+			System.arraycopy(played, 0, run, 0, played.length);
+			boolean any = true;
+			for (int i = 1; i < toWin && any; i++){
+				shiftDown(run, shifts[d], shifted);
+				any = false;
+				for (int w = 0; w < run.length; w++){
+					run[w] = played[w] & masks[d][w] & shifted[w];
+					if (run[w] != 0) any = true;
+				}
+			}
+			if (any && !isZero(run)) return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Helper method that moves every bit in a set towards square 0.
+	 * @param source The bits to move.
+	 * @param distance The number of squares to move them.
+	 * @param target Where the moved bits are stored.
+	 */
+	private static void shiftDown(long[] source, int distance, long[] target){
+		int words = distance >>> 6;
+		int bits = distance & 63;
+		for (int w = 0; w < target.length; w++){
+			int from = w + words;
+			long value = (from < source.length) ? source[from] >>> bits : 0;
+			if (bits != 0 && from + 1 < source.length) value |= source[from + 1] << (Long.SIZE - bits);
+			target[w] = value;
+		}
+	}
+
+	/**
+	 * Helper method that sees if a set of bits is empty.
+	 * @param bits The bits to check.
+	 * @return True if no bit is set.
+	 */
+	private static boolean isZero(long[] bits){
+		for (int w = 0; w < bits.length; w++){
+			if (bits[w] != 0) return false;
+		}
+		return true;
+	}
+
+	public int emptyCount(){
+		int played = 0;
+		for (int w = 0; w < full.length; w++){
+			played += Long.bitCount(stones[HUMAN][w] | stones[COMPUTER][w]);
+		}
+		return squares - played;
+	}
+
+	public int nextEmpty(int from){
+		if (from >= squares) return -1;
+
+		//Looks at the word holding the starting square first, then the ones after it.
+		int w = from >>> 6;
+		long empty = ~(stones[HUMAN][w] | stones[COMPUTER][w]) & full[w] & (-1L << from);
+		while (empty == 0){
+			if (++w >= full.length) return -1;
+			empty = ~(stones[HUMAN][w] | stones[COMPUTER][w]) & full[w];
+		}
+		return (w << 6) + Long.numberOfTrailingZeros(empty);
+	}
+
+	public BitBoard copy(){
+		return new LargeBitBoard(this);
+	}
+}
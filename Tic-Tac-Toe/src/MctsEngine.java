@@ -0,0 +1,365 @@
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Class that chooses the computer's move with Monte Carlo tree search (UCT) instead of
+ * minimax. Each playout goes down a tree of the plays tried so far, taking at each
+ * board the play with the best upper confidence bound: its share of the points won
+ * in its playouts, plus more the less it has been tried. At the end of the tree one
+ * more play is added and the game is played out at random (see
+ * TicTacToe.randomPlayout), and the result is counted in every play on the way
+ * down. The play tried the most is chosen. No board needs a score, so it plays large
+ * boards where a search can't see far enough to tell the plays apart.
+ *
+ * With more than one thread, every thread of a fork-join pool goes down the same
+ * tree on its own copy of the board (tree parallelism). A thread counts a virtual
+ * loss on each play it goes through until its playout is counted, so the others
+ * try different plays meanwhile. The counts are changed atomically and a board's
+ * plays are only added once, so the tree needs no other locks.
+ */
+public class MctsEngine implements GameEngine {
+	private static final char COMPUTER = 'O';
+	private static final char HUMAN = 'X';
+	//The scores of TicTacToe.evalBoard.
+	private static final int HUMAN_WINS = 0;
+	private static final int UNDECIDED = 1;
+	private static final int DRAW = 2;
+	private static final int COMPUTER_WINS = 3;
+	//The playouts for a move when no budget is set.
+	private static final int DEFAULT_PLAYOUTS = 10000;
+	//How much the bound favours plays that have been tried less.
+	private static final double EXPLORATION = 1.0;
+	//The losses counted on a play while a thread's playout through it is running.
+	private static final int VIRTUAL_LOSS = 3;
+	//Seeds each thread's random numbers, so one thread always chooses the same move.
+	private static final long SEED = 0x2545F4914F6CDD1DL;
+
+	private int boardSize; //The size of the board (n).
+	private long timeBudget; //The milliseconds a move may take (0 for no limit).
+	private long playoutBudget; //The playouts a move may run (0 for no limit).
+	private ForkJoinPool pool; //The threads that run playouts (null for one thread).
+	private int threads = 1; //The number of threads.
+	private boolean threats; //Whether forced plays are the only ones tried.
+
+	//What the move being chosen has got to.
+	private Node root; //The tree, from the board the computer is about to play on.
+	private long deadline; //The time the move must end by.
+	private volatile boolean stopped; //Set when the time has run out.
+	private AtomicLong started = new AtomicLong(); //The playouts begun so far.
+	private AtomicLong finished = new AtomicLong(); //The playouts counted so far.
+	private AtomicInteger deepest = new AtomicInteger(); //The most plays the tree went down.
+	private long millis; //The milliseconds the last move took.
+
+	/**
+	 * Constructor that sets up a search on one thread with the default number of playouts.
+	 * @param size The size of the board (n).
+	 */
+	public MctsEngine(int size){
+		boardSize = size;
+	}
+
+	/**
+	 * Limits how long the computer may think about a move. With no limit at all, a
+	 * move runs a fixed number of playouts.
+	 * @param milliseconds The time a move may take (0 for no limit).
+	 * @param positions The number of playouts a move may run (0 for no limit).
+	 */
+	public void setBudget(long milliseconds, long positions){
+		timeBudget = milliseconds;
+		playoutBudget = positions;
+	}
+
+	/**
+	 * Sets how many threads run playouts.
+	 * @param threads The number of threads (0 for one per core).
+	 */
+	public void setThreads(int threads){
+		if (threads <= 0) threads = Runtime.getRuntime().availableProcessors();
+		if (pool != null) pool.shutdown();
+		pool = (threads > 1) ? new ForkJoinPool(threads) : null;
+		this.threads = threads;
+	}
+
+	/**
+	 * Does nothing, since boards are scored by how their playouts end.
+	 * @param on Ignored.
+	 */
+	public void setHeuristic(boolean on){
+	}
+
+	/**
+	 * Sets whether a board with a forced play (a win, a block or two threats at once)
+	 * only has that play added to the tree.
+	 * @param on True to find forced plays.
+	 */
+	public void setThreats(boolean on){
+		threats = on;
+	}
+
+	/**
+	 * Chooses the computer's move by running playouts until the budget runs out.
+	 * @param t The game board.
+	 * @return The play tried the most, with its share of the points won in its
+	 * playouts on the scale from HUMAN_WINS to COMPUTER_WINS.
+	 */
+	public PosPlay chooseMove(TicTacToe t){
+		long start = System.currentTimeMillis();
+		t.useThreats(threats);
+		t.useCandidates(boardSize >= CandidateSet.MIN_BOARD_SIZE);
+
+		root = new Node(-1);
+		started.set(0);
+		finished.set(0);
+		deepest.set(0);
+		stopped = false;
+		deadline = (timeBudget > 0) ? start + timeBudget : Long.MAX_VALUE;
+
+		//With only one play there is nothing to choose.
+		Node[] plays = root.expand(t, COMPUTER);
+		if (plays.length > 1){
+			if (pool == null){
+				new Worker(t, 0).run();
+			} else {
+				WorkerTask[] tasks = new WorkerTask[threads];
+				for (int i = 0; i < threads; i++){
+					tasks[i] = new WorkerTask(t, i);
+					pool.execute(tasks[i]);
+				}
+				for (WorkerTask task : tasks){
+					task.join();
+				}
+			}
+		}
+
+		Node best = plays[0];
+		for (Node play : plays){
+			if (play.visits > best.visits) best = play;
+		}
+		int score = (best.visits == 0) ? UNDECIDED
+				: (int) Math.round(COMPUTER_WINS * best.points / (2.0 * best.visits));
+		millis = System.currentTimeMillis() - start;
+		root = null;
+		return new PosPlay(score, best.square / boardSize, best.square % boardSize);
+	}
+
+	/**
+	 * Gets the number of playouts run while choosing the last move.
+	 * @return The number of playouts.
+	 */
+	public long getNodes(){
+		return finished.get();
+	}
+
+	/**
+	 * Gets the most plays the tree went down before a playout, for the last move.
+	 * @return The number of levels.
+	 */
+	public int getDepth(){
+		return deepest.get();
+	}
+
+	/**
+	 * Sees if the last move was ended by the time budget.
+	 * @return True if the time ran out.
+	 */
+	public boolean wasStopped(){
+		return stopped;
+	}
+
+	/**
+	 * Gets how fast the playouts of the last move ran, over all the threads.
+	 * @return The number of playouts a second.
+	 */
+	public double getPlayoutRate(){
+		return finished.get() * 1000.0 / Math.max(1, millis);
+	}
+
+	/**
+	 * Describes the last move's playouts, how fast they ran and how deep the tree grew.
+	 * @return One line about the last move's search.
+	 */
+	public String describeSearch(){
+		return "Ran " + getNodes() + " playouts (" + String.format("%.0f", getPlayoutRate()) +
+			" a second), tree " + getDepth() + " plays deep" + (wasStopped() ? " (stopped by budget)" : "");
+	}
+
+	/**
+	 * Helper method that reserves the next playout, unless the budget has run out.
+	 * @return True if the playout may run.
+	 */
+	private boolean nextPlayout(){
+		long limit = (playoutBudget > 0 || timeBudget > 0) ? playoutBudget : DEFAULT_PLAYOUTS;
+		if (stopped) return false;
+		if (limit > 0 && started.incrementAndGet() > limit) return false;
+		if (System.currentTimeMillis() > deadline){
+			stopped = true;
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Class for a play in the tree. The counts are for the player who made the play.
+	 */
+	private static class Node {
+		private static final AtomicIntegerFieldUpdater<Node> VISITS =
+				AtomicIntegerFieldUpdater.newUpdater(Node.class, "visits");
+		private static final AtomicIntegerFieldUpdater<Node> POINTS =
+				AtomicIntegerFieldUpdater.newUpdater(Node.class, "points");
+
+		private final int square; //The square played (-1 for the top of the tree).
+		private volatile int visits; //The playouts through the play, with virtual losses.
+		private volatile int points; //2 for each win and 1 for each draw in them.
+		private volatile Node[] children; //The plays after this one (null until added).
+
+		/**
+		 * Constructor that creates a play that hasn't been tried.
+		 * @param square The square played.
+		 */
+		public Node(int square){
+			this.square = square;
+		}
+
+		/**
+		 * Adds the plays after this one to the tree, if no other thread has yet. Only
+		 * the candidates are added, or only the forced play if there is one, best first
+		 * (see TicTacToe.sortedPlays) so that of the plays not tried yet, the likeliest
+		 * is tried first.
+		 * @param t The board after this play.
+		 * @param symbol The player about to play.
+		 * @return The plays after this one.
+		 */
+		public synchronized Node[] expand(TicTacToe t, char symbol){
+			if (children != null) return children;
+
+			int[] squares = t.sortedPlays(symbol, true);
+			Node[] plays = new Node[squares.length];
+			for (int i = 0; i < squares.length; i++){
+				plays[i] = new Node(squares[i]);
+			}
+			children = plays;
+			return children;
+		}
+
+		/**
+		 * Chooses the play to go down: the first one not tried yet, else the one with
+		 * the best upper confidence bound.
+		 * @return The play.
+		 */
+		public Node select(){
+			Node[] plays = children;
+			double logVisits = Math.log(Math.max(1, visits));
+			Node best = null;
+			double bestBound = Double.NEGATIVE_INFINITY;
+			for (Node play : plays){
+				int tried = play.visits;
+				if (tried == 0) return play;
+				double bound = play.points / (2.0 * tried) + EXPLORATION * Math.sqrt(logVisits / tried);
+				if (bound > bestBound){
+					bestBound = bound;
+					best = play;
+				}
+			}
+			return best;
+		}
+	}
+
+	/**
+	 * Class that holds everything one thread needs to run playouts: its board, its
+	 * random numbers and the plays it went down.
+	 */
+	private class Worker {
+		private TicTacToe t; //The board the playouts are run on.
+		private Random random; //Chooses the plays of the playouts.
+		private int[] squares; //A buffer for the playouts' squares.
+		private Node[] path; //The plays gone down in the current playout.
+
+		/**
+		 * Constructor that sets up a worker.
+		 * @param t The board the playouts are run on.
+		 * @param index The worker's number, which seeds its random numbers.
+		 */
+		public Worker(TicTacToe t, int index){
+			int size = boardSize * boardSize;
+			this.t = t;
+			random = new Random(SEED + index);
+			squares = new int[size];
+			path = new Node[size + 1];
+		}
+
+		/**
+		 * Runs playouts until the budget runs out.
+		 */
+		public void run(){
+			while (nextPlayout()){
+				playout();
+				finished.incrementAndGet();
+			}
+		}
+
+		/**
+		 * Helper method that runs one playout: goes down the tree, adds a play, plays
+		 * the game out at random and counts the result on the way back up.
+		 */
+		private void playout(){
+			Node node = root;
+			char symbol = COMPUTER;
+			int depth = 0;
+			int result = t.evalBoard();
+
+			//A play is only added below one that has been tried before (not counting
+			//this playout's own virtual loss).
+			while (result == UNDECIDED){
+				Node[] plays = node.children;
+				if (plays == null){
+					if (node.visits <= VIRTUAL_LOSS) break;
+					node.expand(t, symbol);
+				}
+				node = node.select();
+				Node.VISITS.addAndGet(node, VIRTUAL_LOSS);
+				path[++depth] = node;
+				t.storePlay(node.square / boardSize, node.square % boardSize, symbol);
+				symbol = (symbol == COMPUTER) ? HUMAN : COMPUTER;
+				result = t.evalBoard();
+			}
+			if (result == UNDECIDED) result = t.randomPlayout(symbol, random, squares);
+
+			//The computer made the plays at odd levels, the human at even ones.
+			int computerPoints = (result == COMPUTER_WINS) ? 2 : (result == DRAW) ? 1 : 0;
+			for (int level = depth; level > 0; level--){
+				Node play = path[level];
+				Node.POINTS.addAndGet(play, (level % 2 == 1) ? computerPoints : 2 - computerPoints);
+				Node.VISITS.addAndGet(play, 1 - VIRTUAL_LOSS);
+				t.storePlay(play.square / boardSize, play.square % boardSize, ' ');
+			}
+			Node.VISITS.incrementAndGet(root);
+
+			int most = deepest.get();
+			while (depth > most && !deepest.compareAndSet(most, depth)){
+				most = deepest.get();
+			}
+		}
+	}
+
+	/**
+	 * Task that runs one worker on a copy of the board.
+	 */
+	private class WorkerTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private TicTacToe board; //The board at the top of the tree (only read).
+		private int index; //The worker's number.
+
+		public WorkerTask(TicTacToe board, int index){
+			this.board = board;
+			this.index = index;
+		}
+
+		protected void compute(){
+			new Worker(new TicTacToe(board), index).run();
+		}
+	}
+}
@@ -0,0 +1,340 @@
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Class that chooses the computer's move with a minimax search and alpha/beta cuts.
+ * The best play found for every configuration is kept in the transposition table and
+ * the plays are tried in the order given by MoveOrdering. The budget and the search
+ * one level deeper at a time come from AlphaBetaEngine.
+ *
+ * With more than one thread, the plays at the top of the tree are split between
+ * the threads of a fork-join pool. The first play is searched on its own, so the rest
+ * start with its score as a bound (young brothers wait), and every thread raises
+ * that bound as it finds better plays. Each thread works on its own copy of the
+ * board with its own move ordering, and all of them store what they find in one
+ * SharedTranspositionTable, which needs no locks. Each thread only adds its count of
+ * positions to the total every CHECK_INTERVAL positions, so a position budget may be
+ * overshot by up to that many for each thread (and the one that chooses the move).
+ *
+ * The search with one thread chooses the first play in the order with the best
+ * score. A play that was cut off by a bound a later play had already raised to the
+ * best score might be as good, so those few are searched again before choosing, and
+ * the same play is chosen with any number of threads. (When forced plays are found
+ * without searching, which plays are seen to win can depend on what is already in
+ * the table, so another play that wins as surely may be chosen.)
+ */
+public class MinimaxEngine extends AlphaBetaEngine {
+	private ForkJoinPool pool; //The threads for the top of the tree (null for one thread).
+	private Searcher main; //Searches on the thread that chooses the move.
+	private ConcurrentLinkedQueue<Searcher> helpers; //Searchers free for the pool's threads.
+
+	/**
+	 * Constructor that sets up a search on one thread with no budget.
+	 * @param size The size of the board (n).
+	 * @param depth The deepest level that is searched.
+	 * @param megabytes The size of the transposition table in megabytes.
+	 */
+	public MinimaxEngine(int size, int depth, int megabytes){
+		super(size, depth, megabytes);
+		main = new Searcher();
+		helpers = new ConcurrentLinkedQueue<Searcher>();
+	}
+
+	/**
+	 * Sets how many threads search the top of the tree.
+	 * @param threads The number of threads (0 for one per core).
+	 */
+	public void setThreads(int threads){
+		if (threads <= 0) threads = Runtime.getRuntime().availableProcessors();
+
+		//The helpers' move orderings go with the old pool.
+		if (pool != null) pool.shutdown();
+		helpers.clear();
+		pool = (threads > 1) ? new ForkJoinPool(threads) : null;
+	}
+
+	/**
+	 * Chooses the computer's move, as in AlphaBetaEngine.
+	 * @param t The game board.
+	 * @return The move found by the last level that was finished.
+	 */
+	public PosPlay chooseMove(TicTacToe t){
+		PosPlay best = super.chooseMove(t);
+		main.flush();
+		return best;
+	}
+
+	/**
+	 * Gets the table and the searchers ready to choose a new move. The threads share
+	 * a table that needs no locks.
+	 * @param t The game board.
+	 */
+	protected void start(TicTacToe t){
+		configurations = (pool == null) ? t.sharedTable(tableSize) : t.concurrentTable(tableSize);
+		main.start(t);
+		for (Searcher helper : helpers){
+			helper.start(null);
+		}
+	}
+
+	/**
+	 * Searches the computer's plays at the top of the tree, on the pool's threads if
+	 * there is more than one.
+	 * @param t The game board.
+	 * @param guess Not used.
+	 * @return The best play and its score.
+	 */
+	protected PosPlay searchRoot(TicTacToe t, int guess){
+		return (pool == null) ? main.computerPlay(COMPUTER, LOWEST, ceiling, 0) : splitRoot(t);
+	}
+
+	/**
+	 * Helper method that searches the computer's plays at the top of the tree on the
+	 * pool's threads. The first play is searched first to get a bound for the others.
+	 * @param t The game board.
+	 * @return The best play and its score.
+	 */
+	private PosPlay splitRoot(TicTacToe t){
+		int forced = threats ? t.forcedPlay(COMPUTER) : -1;
+		int plays = (forced != -1) ? 1 : main.ordering.order(t, configurations, 0, COMPUTER);
+		int[] squares = new int[plays];
+		for (int i = 0; i < plays; i++){
+			squares[i] = (forced != -1) ? forced : main.ordering.play(0, i);
+		}
+		int[] scores = new int[plays];
+		int[] bounds = new int[plays];
+
+		//The eldest brother is searched alone with the full window.
+		if (main.outOfBudget()) return null;
+		scores[0] = main.tryPlay(COMPUTER, squares[0], LOWEST, ceiling, 0).getScore();
+		bounds[0] = LOWEST;
+		if (aborted) return null;
+
+		//The younger brothers are searched together, sharing the best score found.
+		AtomicInteger highest = new AtomicInteger(scores[0]);
+		if (plays > 1 && scores[0] < computerWins){
+			pool.invoke(new RootTask(t, squares, scores, bounds, highest, 1, plays));
+			if (aborted) return null;
+		}
+
+		//Finds the first play with the best score.
+		int value = highest.get();
+		int best = 0;
+		while (scores[best] != value || scores[best] <= bounds[best]){
+			best++;
+		}
+
+		//A play that was only searched after a later one raised the bound to the best
+		//score might score as much, so it is searched again to see if it comes first.
+		for (int i = 1; i < best; i++){
+			if (bounds[i] == value){
+				if (main.outOfBudget()) return null;
+				int score = main.tryPlay(COMPUTER, squares[i], value - 1, value, 0).getScore();
+				if (aborted) return null;
+				if (score >= value){
+					best = i;
+					break;
+				}
+			}
+		}
+		return new PosPlay(value, squares[best] / boardSize, squares[best] % boardSize);
+	}
+
+	/**
+	 * Task that searches a range of the computer's plays at the top of the tree. The
+	 * range is halved until each task has one play, which is searched on a copy of the
+	 * board by whichever searcher is free.
+	 */
+	private class RootTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private TicTacToe root; //The board at the top of the tree (only read).
+		private int[] squares; //The plays, in the order they were sorted in.
+		private int[] scores; //The score found for each play.
+		private int[] bounds; //The bound each play was searched with; a score at or
+		                      //below it only means the play is no better than that.
+		private AtomicInteger highest; //The best exact score found so far.
+		private int from; //The first play in the range.
+		private int to; //One past the last play in the range.
+
+		public RootTask(TicTacToe root, int[] squares, int[] scores, int[] bounds,
+				AtomicInteger highest, int from, int to){
+			this.root = root;
+			this.squares = squares;
+			this.scores = scores;
+			this.bounds = bounds;
+			this.highest = highest;
+			this.from = from;
+			this.to = to;
+		}
+
+		protected void compute(){
+			if (to - from > 1){
+				int middle = (from + to) >>> 1;
+				RootTask left = new RootTask(root, squares, scores, bounds, highest, from, middle);
+				RootTask right = new RootTask(root, squares, scores, bounds, highest, middle, to);
+				left.fork();
+				right.compute();
+				left.join();
+				return;
+			}
+
+			Searcher searcher = helpers.poll();
+			if (searcher == null) searcher = new Searcher();
+			searcher.t = new TicTacToe(root);
+
+			//Plays no better than the best so far are cut off as soon as that is known.
+			int alpha = highest.get();
+			bounds[from] = alpha;
+			if (!searcher.outOfBudget()){
+				int score = searcher.tryPlay(COMPUTER, squares[from], alpha, ceiling, 0).getScore();
+				scores[from] = score;
+
+				//Raises the bound the other threads search with.
+				int best = highest.get();
+				while (score > best && !highest.compareAndSet(best, score)){
+					best = highest.get();
+				}
+			}
+			//A play can take fewer positions than a check, so the budget is checked here too.
+			overBudget(searcher.flush(), true);
+			helpers.add(searcher);
+		}
+	}
+
+	/**
+	 * Class that holds everything one thread needs to search: its board and its
+	 * move ordering.
+	 */
+	private class Searcher {
+		private TicTacToe t; //The board being searched.
+		private MoveOrdering ordering; //The order the squares are tried in.
+		private int unflushed; //Positions not yet added to the shared count.
+
+		/**
+		 * Constructor that creates a searcher with its own move ordering.
+		 */
+		public Searcher(){
+			ordering = new MoveOrdering(boardSize * boardSize, maxLevel);
+		}
+
+		/**
+		 * Gets ready to choose a new move.
+		 * @param t The board to search (kept if null).
+		 */
+		public void start(TicTacToe t){
+			if (t != null) this.t = t;
+			ordering.newSearch();
+		}
+
+		/**
+		 * Explores the game tree and chooses the best move for the player.
+		 * @param symbol The player about to play, either an X or an O.
+		 * @param highest_score The highest score the computer is already sure of (alpha).
+		 * @param lowest_score The lowest score the human is already sure of (beta).
+		 * @param level The level of the search.
+		 * @return The best play and its score.
+		 */
+		public PosPlay computerPlay(char symbol, int highest_score, int lowest_score, int level){
+			PosPlay reply; //Opponent's best reply.
+			int bestRow = -1;
+			int bestColumn = -1; //Position of best play.
+			int value = (symbol == COMPUTER) ? LOWEST : ceiling;
+
+			//Only the empty positions are visited, the ones most likely to cause a cut first.
+			//A forced play is the only one worth visiting.
+			int forced = threats ? t.forcedPlay(symbol) : -1;
+			int plays = (forced != -1) ? 1 : ordering.order(t, configurations, level, symbol);
+			for (int i = 0; i < plays; i++){
+				int square = (forced != -1) ? forced : ordering.play(level, i);
+				//Gives up, the result isn't used.
+				if (outOfBudget()) return new PosPlay(value, bestRow, bestColumn);
+
+				reply = tryPlay(symbol, square, highest_score, lowest_score, level);
+				if (aborted) return reply;
+
+				if ((symbol == COMPUTER && reply.getScore() > value) ||
+						(symbol == HUMAN && reply.getScore() < value)){
+					bestRow = square / boardSize;
+					bestColumn = square % boardSize;
+					value = reply.getScore();
+
+					//Alpha/beta cut.
+					if (symbol == COMPUTER && value > highest_score){
+						highest_score = value;
+					} else if (symbol == HUMAN && value < lowest_score){
+						lowest_score = value;
+					}
+					if (highest_score >= lowest_score){
+						ordering.cutoff(level, symbol, square, searchLevel - level);
+						return new PosPlay(value, bestRow, bestColumn);
+					}
+				}
+			}
+			return new PosPlay(value, bestRow, bestColumn);
+		}
+
+		/**
+		 * Plays one square, finds the score of the board that results and takes the
+		 * play back.
+		 * @param symbol The player playing, either an X or an O.
+		 * @param square The square (row * n + column).
+		 * @param highest_score The highest score the computer is already sure of (alpha).
+		 * @param lowest_score The lowest score the human is already sure of (beta).
+		 * @param level The level of the search.
+		 * @return The opponent's best reply, with the score of the play.
+		 */
+		public PosPlay tryPlay(char symbol, int square, int highest_score, int lowest_score, int level){
+			int row = square / boardSize;
+			int column = square % boardSize;
+			PosPlay reply;
+
+			t.storePlay(row, column, symbol);
+			char opponent = (symbol == COMPUTER) ? HUMAN : COMPUTER;
+			int score = horizonScore(t, opponent, level);
+			if (score != UNSCORED){
+				//Game ending (or certain to end) situation or max number of levels reached.
+				reply = new PosPlay(score, row, column);
+			} else {
+				//A stored score is only used if it was searched deeply enough and is
+				//exact or outside the alpha/beta window.
+				int lookupVal = t.repeatedConfig(configurations, searchLevel - level, highest_score, lowest_score);
+				if (lookupVal != -1){
+					reply = new PosPlay(lookupVal, row, column);
+				} else {
+					reply = computerPlay(opponent, highest_score, lowest_score, level + 1);
+					//Unfinished, so it isn't stored.
+					if (!aborted){
+						t.insertConfig(configurations, reply, searchLevel - level, highest_score, lowest_score);
+					}
+				}
+			}
+			t.storePlay(row, column, ' ');
+			return reply;
+		}
+
+		/**
+		 * Counts a position and checks the budget. With one thread every position is
+		 * counted as it is looked at, so the position budget is exact. With more, the
+		 * count is only added to the shared one every so often, so the threads don't
+		 * all fight over it.
+		 * @return True if the search should give up.
+		 */
+		public boolean outOfBudget(){
+			if (pool == null) return MinimaxEngine.this.outOfBudget();
+			if (++unflushed < CHECK_INTERVAL) return aborted;
+			return overBudget(flush(), true);
+		}
+
+		/**
+		 * Adds the positions not yet counted to the shared count.
+		 * @return The shared count.
+		 */
+		public long flush(){
+			long total = nodes.addAndGet(unflushed);
+			unflushed = 0;
+			return total;
+		}
+	}
+}
@@ -0,0 +1,147 @@
+/**
+ * Class that decides the order the game-tree search tries the empty squares in.
+ * Alpha/beta cuts off the most when the best play is tried first, so the best play
+ * stored in the transposition table goes first and the rest are sorted by the
+ * square's own score from TicTacToe.squareScore. Squares with the same score are
+ * sorted by whether they are killer plays (ones that caused a cut at the same level)
+ * and then by how often they have caused a cut before (the history). The square score
+ * comes before the killers and history because, in k-in-a-row games, a play that
+ * wins or blocks a line is nearly always the one that causes the cut.
+ * Every level has its own buffers, so ordering the plays never creates an object.
+ */
+public class MoveOrdering {
+	//Sort key of the play stored in the table, above every other key.
+	private static final int TABLE_BONUS = 1 << 30;
+	//How far the square score is shifted up, so it decides the order first.
+	private static final int SCORE_SHIFT = 20;
+	//Added for the newest killer play; the older one gets half of this.
+	private static final int KILLER_BONUS = 1 << 19;
+	//The number of killer plays remembered for each level.
+	private static final int KILLERS = 2;
+	//History scores are halved once one gets this big, so they stay under the killers.
+	private static final int HISTORY_LIMIT = 1 << 18;
+
+	private int[][] plays; //The ordered plays for each level.
+	private int[][] keys; //The sort key of each play in plays.
+	private int[][] killers; //The plays that last caused a cut at each level.
+	private int[][] history; //How much each square has caused cuts, for each player.
+
+	/**
+	 * Constructor that sets up the buffers for a search.
+	 * @param squares The number of squares on the board (n * n).
+	 * @param levels The largest number of levels the search will go down.
+	 */
+	public MoveOrdering(int squares, int levels){
+		//No more levels can be played than there are squares.
+		levels = Math.min(levels, squares) + 1;
+		plays = new int[levels][squares];
+		keys = new int[levels][squares];
+		killers = new int[levels][KILLERS];
+		history = new int[2][squares];
+		newSearch();
+	}
+
+	/**
+	 * Gets ready to choose a new move. Killer plays belong to the last search's
+	 * levels, so they are forgotten, and the history is halved so it follows the game.
+	 */
+	public void newSearch(){
+		for (int level = 0; level < killers.length; level++){
+			for (int i = 0; i < KILLERS; i++){
+				killers[level][i] = -1;
+			}
+		}
+		for (int player = 0; player < history.length; player++){
+			for (int square = 0; square < history[player].length; square++){
+				history[player][square] >>= 1;
+			}
+		}
+	}
+
+	/**
+	 * Puts the empty squares in the order they should be tried at a level. On a large
+	 * board only the squares near played ones are tried (see TicTacToe.nextCandidate).
+	 * @param t The game board.
+	 * @param configurations The transposition table (may be null).
+	 * @param level The level of the search.
+	 * @param symbol The player about to play, either an X or an O.
+	 * @return The number of plays, which can then be read with play().
+	 */
+	public int order(TicTacToe t, TranspositionTableADT configurations, int level, char symbol){
+		int[] list = plays[level];
+		int[] key = keys[level];
+		int[] scores = history[player(symbol)];
+		int tableMove = (configurations == null) ? -1 : t.storedPlay(configurations);
+
+		//Gives every empty square its sort key.
+		int count = 0;
+		for (int square = t.nextCandidate(0); square != -1; square = t.nextCandidate(square + 1)){
+			int value;
+			if (square == tableMove){
+				value = TABLE_BONUS;
+			} else {
+				value = (t.squareScore(square, symbol) << SCORE_SHIFT) + scores[square];
+				if (square == killers[level][0]){
+					value += KILLER_BONUS;
+				} else if (square == killers[level][1]){
+					value += KILLER_BONUS >> 1;
+				}
+			}
+
+			//Inserts it into the sorted part, after any play with the same key.
+			int i = count++;
+			while (i > 0 && key[i - 1] < value){
+				list[i] = list[i - 1];
+				key[i] = key[i - 1];
+				i--;
+			}
+			list[i] = square;
+			key[i] = value;
+		}
+		return count;
+	}
+
+	/**
+	 * Gets one of the plays ordered by the last call to order() at a level.
+	 * @param level The level of the search.
+	 * @param i Where the play is in the order.
+	 * @return The square (row * n + column).
+	 */
+	public int play(int level, int i){
+		return plays[level][i];
+	}
+
+	/**
+	 * Remembers a play that caused an alpha/beta cut, so it is tried earlier the
+	 * next time.
+	 * @param level The level of the search the cut happened at.
+	 * @param symbol The player who played, either an X or an O.
+	 * @param square The square that was played.
+	 * @param levels The number of levels that were searched below the play.
+	 */
+	public void cutoff(int level, char symbol, int square, int levels){
+		//Keeps the two newest different killers.
+		if (killers[level][0] != square){
+			killers[level][1] = killers[level][0];
+			killers[level][0] = square;
+		}
+
+		//Cuts found by deeper searches count for more.
+		int[] scores = history[player(symbol)];
+		scores[square] += (levels + 1) * (levels + 1);
+		if (scores[square] >= HISTORY_LIMIT){
+			for (int i = 0; i < scores.length; i++){
+				scores[i] >>= 1;
+			}
+		}
+	}
+
+	/**
+	 * Helper method that converts an X or an O to a player number.
+	 * @param symbol Either an X or an O.
+	 * @return The player number.
+	 */
+	private static int player(char symbol){
+		return (symbol == 'X') ? BitBoard.HUMAN : BitBoard.COMPUTER;
+	}
+}
@@ -0,0 +1,202 @@
+/**
+ * Class that chooses the computer's move with a negamax search. Instead of one branch
+ * for the computer and another for the human, every level looks for the best score
+ * for the player about to play. A score for the human is the computer's score turned
+ * around (a computer win minus it), so the same code serves both players and an
+ * alpha/beta window is passed down by turning it around too. Scores in the
+ * transposition table are kept as the computer's, as in MinimaxEngine.
+ *
+ * Two things make it look at fewer positions than MinimaxEngine:
+ * - Principal variation search: after the first play at a level, the others are only
+ *   checked with a null window (alpha, alpha + 1) to prove they are no better. Only a
+ *   play that turns out better is searched again with the whole window. This is only
+ *   done when the window is wide, since there are only four scores.
+ * - Aspiration windows: the search at the top starts with a narrow window around the
+ *   score of the previous level (or of the previous move), and widens it only if the
+ *   score falls outside.
+ *
+ * It always searches on one thread.
+ */
+public class NegamaxEngine extends AlphaBetaEngine {
+	//Null windows are only tried in windows at least this wide. With only four scores, a
+	//narrower window is nearly a null window already, and a play that proves better
+	//would be searched twice for little gain.
+	private static final int PVS_WIDTH = 4;
+	//How far either side of the expected score the aspiration window reaches, as a
+	//part of the scale, when unfinished boards are scored.
+	private static final int ASPIRATION_PARTS = 64;
+
+	private MoveOrdering ordering; //The order the squares are tried in.
+	private int margin = 1; //How far either side of the expected score the aspiration window reaches.
+	private TicTacToe t; //The board being searched.
+
+	/**
+	 * Constructor that sets up a search with no budget.
+	 * @param size The size of the board (n).
+	 * @param depth The deepest level that is searched.
+	 * @param megabytes The size of the transposition table in megabytes.
+	 */
+	public NegamaxEngine(int size, int depth, int megabytes){
+		super(size, depth, megabytes);
+		ordering = new MoveOrdering(size * size, depth);
+	}
+
+	/**
+	 * Does nothing, since this search always runs on one thread.
+	 * @param threads The number of threads (ignored).
+	 */
+	public void setThreads(int threads){
+	}
+
+	/**
+	 * Sets whether unfinished boards at the deepest level are scored, as in
+	 * AlphaBetaEngine. The scores are then far finer, so the aspiration window is
+	 * widened to match.
+	 * @param on True to score unfinished boards.
+	 */
+	public void setHeuristic(boolean on){
+		super.setHeuristic(on);
+		margin = Math.max(1, scale / ASPIRATION_PARTS);
+	}
+
+	/**
+	 * Gets the table and the move ordering ready to choose a new move.
+	 * @param t The game board.
+	 */
+	protected void start(TicTacToe t){
+		this.t = t;
+		configurations = t.sharedTable(tableSize);
+		ordering.newSearch();
+	}
+
+	/**
+	 * Searches the top of the tree with a window just around the expected score: the
+	 * last level's, or the previous move's before the first level. If the score falls
+	 * outside, the side it fell out of is opened and the search is repeated, which the
+	 * table makes cheap.
+	 * @param t The game board.
+	 * @param guess The expected score (LOWEST if there isn't one).
+	 * @return The best play and its score.
+	 */
+	protected PosPlay searchRoot(TicTacToe t, int guess){
+		if (guess == LOWEST) return negamax(COMPUTER, LOWEST, ceiling, 0);
+
+		int alpha = Math.max(LOWEST, guess - margin);
+		int beta = Math.min(ceiling, guess + margin);
+		while (true){
+			PosPlay pos = negamax(COMPUTER, alpha, beta, 0);
+			if (aborted) return pos;
+			if (pos.getScore() <= alpha){
+				alpha = LOWEST;
+			} else if (pos.getScore() >= beta){
+				beta = ceiling;
+			} else {
+				return pos;
+			}
+		}
+	}
+
+	/**
+	 * Helper method that explores the game tree and chooses the best play for the
+	 * player about to play.
+	 * @param symbol The player about to play, either an X or an O.
+	 * @param alpha The score the player is already sure of.
+	 * @param beta The score the opponent will not let the player go over.
+	 * @param level The level of the search.
+	 * @return The best play and its score for the player.
+	 */
+	private PosPlay negamax(char symbol, int alpha, int beta, int level){
+		int value = LOWEST;
+		int bestSquare = -1;
+
+		//Only the empty positions are visited, the ones most likely to cause a cut first.
+		//A forced play is the only one worth visiting.
+		int forced = threats ? t.forcedPlay(symbol) : -1;
+		int plays = (forced != -1) ? 1 : ordering.order(t, configurations, level, symbol);
+		for (int i = 0; i < plays; i++){
+			int square = (forced != -1) ? forced : ordering.play(level, i);
+			//Gives up, the result isn't used.
+			if (outOfBudget()) break;
+
+			int score;
+			if (i == 0 || beta - alpha < PVS_WIDTH){
+				score = tryPlay(symbol, square, alpha, beta, level);
+			} else {
+				//Only proves the play is no better than alpha, which cuts off more.
+				score = tryPlay(symbol, square, alpha, alpha + 1, level);
+				if (!aborted && score > alpha && score < beta){
+					//It is better, so its real score is needed.
+					score = tryPlay(symbol, square, alpha, beta, level);
+				}
+			}
+			if (aborted) break;
+
+			if (score > value){
+				value = score;
+				bestSquare = square;
+				if (value > alpha) alpha = value;
+
+				//Alpha/beta cut.
+				if (alpha >= beta){
+					ordering.cutoff(level, symbol, square, searchLevel - level);
+					break;
+				}
+			}
+		}
+		return (bestSquare == -1) ? new PosPlay(value, -1, -1) :
+			new PosPlay(value, bestSquare / boardSize, bestSquare % boardSize);
+	}
+
+	/**
+	 * Helper method that plays one square, finds the score of the board that results
+	 * and takes the play back.
+	 * @param symbol The player playing, either an X or an O.
+	 * @param square The square (row * n + column).
+	 * @param alpha The score the player is already sure of.
+	 * @param beta The score the opponent will not let the player go over.
+	 * @param level The level of the search.
+	 * @return The score of the play for the player.
+	 */
+	private int tryPlay(char symbol, int square, int alpha, int beta, int level){
+		int row = square / boardSize;
+		int column = square % boardSize;
+		int score;
+
+		t.storePlay(row, column, symbol);
+		char opponent = (symbol == COMPUTER) ? HUMAN : COMPUTER;
+		int horizon = horizonScore(t, opponent, level);
+		if (horizon != UNSCORED){
+			//Game ending (or certain to end) situation or max number of levels reached.
+			score = scoreFor(symbol, horizon);
+		} else {
+			//The table holds the computer's scores, so the human's window is turned around.
+			int highest = (symbol == COMPUTER) ? alpha : computerWins - beta;
+			int lowest = (symbol == COMPUTER) ? beta : computerWins - alpha;
+			int lookupVal = t.repeatedConfig(configurations, searchLevel - level, highest, lowest);
+			if (lookupVal != -1){
+				score = scoreFor(symbol, lookupVal);
+			} else {
+				PosPlay reply = negamax(opponent, computerWins - beta, computerWins - alpha, level + 1);
+				score = computerWins - reply.getScore();
+				//Unfinished, so it isn't stored.
+				if (!aborted){
+					t.insertConfig(configurations, new PosPlay(scoreFor(symbol, score), reply.getRow(),
+							reply.getCol()), searchLevel - level, highest, lowest);
+				}
+			}
+		}
+		t.storePlay(row, column, ' ');
+		return score;
+	}
+
+	/**
+	 * Helper method that turns the computer's score into a player's score, or a
+	 * player's score back into the computer's.
+	 * @param symbol The player, either an X or an O.
+	 * @param score The score.
+	 * @return The same score for the player (or for the computer).
+	 */
+	private int scoreFor(char symbol, int score){
+		return (symbol == COMPUTER) ? score : computerWins - score;
+	}
+}
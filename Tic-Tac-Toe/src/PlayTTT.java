@@ -12,12 +12,29 @@ public class PlayTTT extends JFrame {
      private int board_size;    /* Size of game board */
      private int max_level;     /* Maximum level of the game tree that
                                    will be explored                    */
-     private Dictionary configurations;
+     private GameEngine engine; /* Chooses the computer's moves       */
+     private boolean show_stats; /* Print the size of every search    */
+
+     private static final int DEFAULT_TABLE_SIZE = 16;
 
 
     /* Constructor. Creates a panel to represent the game board and destroys
        the panel when its window is closed.                                 */
     public PlayTTT(int size, int to_win, int depth)
+    {
+        this(size, to_win, depth, DEFAULT_TABLE_SIZE);
+    }
+
+    /* Constructor. Same as above, but also sets the size in megabytes of
+       the table that holds the scores of configurations already searched */
+    public PlayTTT(int size, int to_win, int depth, int table_mb)
+    {
+        this(size, to_win, depth, new MinimaxEngine(size, depth, table_mb));
+    }
+
+    /* Constructor. Same as above, but the computer's moves are chosen by
+       the given engine                                                   */
+    public PlayTTT(int size, int to_win, int depth, GameEngine engine)
     {
         Container c = getContentPane();
 	c.setLayout(new GridLayout(size,size));  
@@ -37,19 +54,116 @@ public class PlayTTT extends JFrame {
 	board_size = size;
 	max_level = depth;
         t = new TicTacToe(size,to_win,depth); /* User code needed to play */
+        this.engine = engine;
+    }
+
+    /* Print the number of positions looked at in every search and the
+       effective branching factor, the number of plays tried per level
+       that would give the same number of positions                    */
+    public void showStats(boolean show)
+    {
+        show_stats = show;
+    }
+
+    /* Limit how long the computer may think about a move. The search goes
+       one level deeper at a time, and once either budget runs out the move
+       found by the last search that finished is played. A budget of 0
+       means no limit.                                                     */
+    public void setBudget(long milliseconds, long positions)
+    {
+        engine.setBudget(milliseconds, positions);
+    }
+
+    /* Set the number of threads that search the computer's plays at the
+       top of the game tree (0 for one per core). The same move is found
+       with any number of threads.                                       */
+    public void setThreads(int threads)
+    {
+        engine.setThreads(threads);
+    }
+
+    /* Score the boards at the deepest level that nobody has won yet by
+       the open lines of to_win squares each player has, so a shallower
+       search is enough to play well.                                    */
+    public void setHeuristic(boolean on)
+    {
+        engine.setHeuristic(on);
+    }
+
+    /* Play wins, blocks and double threats straight away instead of
+       searching the other plays, and look for wins made only of threats
+       past the deepest level.                                           */
+    public void setThreats(boolean on)
+    {
+        engine.setThreats(on);
     }
 
     
-    /* To run the program type: java PlayTTT size to_win, where 
-       size is the size of the board and to_win is the number of
-       symbols in line needed to win the game.                   */
+    /* To run the program type: java PlayTTT size to_win depth [options],
+       where size is the size of the board and to_win is the number of
+       symbols in line needed to win the game. The option -tt=MB sets the
+       size of the transposition table in megabytes, and -stats prints
+       how many positions every search looked at. The options -time=MS
+       and -nodes=N stop each computer move after that many milliseconds
+       or positions, in which case depth is only the deepest level tried.
+       The option -threads=N searches with N threads (0 for one per core),
+       -engine=negamax uses the negamax search instead of minimax,
+       -engine=mcts uses Monte Carlo tree search (where -nodes=N is the
+       number of random playouts a move runs and depth is not used),
+       -heuristic scores unfinished boards at the deepest level, and
+       -threats finds forced plays without searching. The option
+       -tablebase=FILE plays perfectly from a tablebase made by
+       TablebaseGenerator, when it is for this board size and to_win.
+       On boards of 10x10 or more, only the squares within two rows and
+       columns of a played square are searched, so 15x15 and 19x19 games
+       play in real time. To solve a board without playing, see solve.   */
     public static void main(String [] args)
     {
+        if (args.length > 0 && args[0].equals("solve")) {
+            solve(args);
+            return;
+        }
+
+        int table_mb = DEFAULT_TABLE_SIZE;
+        boolean stats = false;
+        long time_ms = 0, node_limit = 0;
+        int threads = 1;
+        String engine_name = "minimax";
+        boolean heuristic = false, threat_search = false;
+        String tablebase_file = null;
+        boolean valid = args.length >= 3;
+
+        /* Read the options that follow the three numbers */
+        for (int i = 3; i < args.length && valid; i++) {
+            if (args[i].startsWith("-tt="))
+                table_mb = Integer.parseInt(args[i].substring(4));
+            else if (args[i].equals("-stats"))
+                stats = true;
+            else if (args[i].startsWith("-time="))
+                time_ms = Long.parseLong(args[i].substring(6));
+            else if (args[i].startsWith("-nodes="))
+                node_limit = Long.parseLong(args[i].substring(7));
+            else if (args[i].startsWith("-threads="))
+                threads = Integer.parseInt(args[i].substring(9));
+            else if (args[i].startsWith("-engine="))
+                engine_name = args[i].substring(8);
+            else if (args[i].equals("-heuristic"))
+                heuristic = true;
+            else if (args[i].equals("-threats"))
+                threat_search = true;
+            else if (args[i].startsWith("-tablebase="))
+                tablebase_file = args[i].substring(11);
+            else valid = false;
+        }
+
+        if (!engine_name.equals("minimax") && !engine_name.equals("negamax") &&
+            !engine_name.equals("mcts"))
+            valid = false;
 
         /* Check that the number of arguments is the correct one */
-	if (args.length != 3) {
+	if (!valid) {
 	    System.out.println
-		("Usage: java PlayTTT board-size symbols-inline-to-win depth");
+		("Usage: java PlayTTT board-size symbols-inline-to-win depth [-tt=MB] [-stats] [-time=MS] [-nodes=N] [-threads=N] [-engine=minimax|negamax|mcts] [-heuristic] [-threats] [-tablebase=FILE]");
 	    System.exit(0);
 	}
 
@@ -62,7 +176,26 @@ public class PlayTTT extends JFrame {
 	int depth = Integer.parseInt(args[2]);
 
 	/* Create the game board and start the game */
-        JFrame f = new PlayTTT(size,adjacent_to_win,depth);
+        GameEngine engine;
+        if (engine_name.equals("negamax"))
+            engine = new NegamaxEngine(size,depth,table_mb);
+        else if (engine_name.equals("mcts"))
+            engine = new MctsEngine(size);
+        else engine = new MinimaxEngine(size,depth,table_mb);
+        if (tablebase_file != null) {
+            try {
+                engine = new TablebaseEngine(new Tablebase(tablebase_file), engine);
+            } catch (IOException e) {
+                System.out.println("Could not read the tablebase: " + e.getMessage());
+                System.exit(0);
+            }
+        }
+        PlayTTT f = new PlayTTT(size,adjacent_to_win,depth,engine);
+        f.showStats(stats);
+        f.setBudget(time_ms, node_limit);
+        f.setThreads(threads);
+        f.setHeuristic(heuristic);
+        f.setThreats(threat_search);
 
         f.setSize(size*100,size*100);
         f.setVisible(true);
@@ -75,6 +208,84 @@ public class PlayTTT extends JFrame {
     }
 
 
+    /* To solve a board type: java PlayTTT solve size to_win [board] [options],
+       where board lists the squares row by row as X, O or . (rows may be
+       split by /) and is empty if left out. X plays first, so X is about
+       to play if both have played as many squares, and O if X has played
+       one more. The board is solved with proof-number search, which says
+       if the player about to play wins, draws or loses with perfect play.
+       The option -tt=MB sets the size of the solver's table in megabytes,
+       and -time=MS and -nodes=N give up after that many milliseconds or
+       positions, in which case the result is unknown.                   */
+    public static void solve(String [] args)
+    {
+        int table_mb = DEFAULT_TABLE_SIZE;
+        long time_ms = 0, node_limit = 0;
+        String squares = "";
+        boolean valid = args.length >= 3;
+
+        /* Read the board and the options that follow the two numbers */
+        for (int i = 3; i < args.length && valid; i++) {
+            if (args[i].startsWith("-tt="))
+                table_mb = Integer.parseInt(args[i].substring(4));
+            else if (args[i].startsWith("-time="))
+                time_ms = Long.parseLong(args[i].substring(6));
+            else if (args[i].startsWith("-nodes="))
+                node_limit = Long.parseLong(args[i].substring(7));
+            else if (i == 3 && !args[i].startsWith("-"))
+                squares = args[i].replace("/", "");
+            else valid = false;
+        }
+
+        int size = valid ? Integer.parseInt(args[1]) : 0;
+        int adjacent_to_win = valid ? Integer.parseInt(args[2]) : 0;
+        if (squares.length() == 0)
+            for (int i = 0; i < size * size; i++) squares += ".";
+        if (squares.length() != size * size) valid = false;
+
+	if (!valid) {
+	    System.out.println
+		("Usage: java PlayTTT solve board-size symbols-inline-to-win [board] [-tt=MB] [-time=MS] [-nodes=N]");
+	    System.exit(0);
+	}
+
+        /* Play the squares on the board and count them */
+        TicTacToe board = new TicTacToe(size,adjacent_to_win,0);
+        int crosses = 0, noughts = 0;
+        for (int i = 0; i < squares.length(); i++) {
+            char symbol = Character.toUpperCase(squares.charAt(i));
+            if (symbol == 'X') crosses++;
+            else if (symbol == 'O') noughts++;
+            else if (symbol != '.') {
+                System.out.println("Squares must be X, O or .: " + squares.charAt(i));
+                System.exit(0);
+            }
+            if (symbol != '.') board.storePlay(i / size, i % size, symbol);
+        }
+        if (crosses != noughts && crosses != noughts + 1) {
+            System.out.println("X plays first, so X must have played as many squares as O or one more");
+            System.exit(0);
+        }
+        char player = (crosses == noughts) ? 'X' : 'O';
+        char other = (player == 'X') ? 'O' : 'X';
+
+        ProofNumberSolver solver = new ProofNumberSolver(table_mb);
+        solver.setBudget(time_ms, node_limit);
+        long start = System.currentTimeMillis();
+        int result = solver.solve(board, player);
+        long taken = System.currentTimeMillis() - start;
+
+        /* Print the result and the play that gets it */
+        String [] results = {"unknown (the budget ran out)", other + " wins",
+                             "a draw", player + " wins"};
+        String play = "";
+        int square = solver.getBestPlay();
+        if (square != -1)
+            play = " by playing row " + (square / size + 1) + ", column " + (square % size + 1);
+        System.out.println(player + " to play: " + results[result] + play);
+        System.out.println(solver.getNodes() + " positions searched in " + taken + " ms");
+    }
+
     /* Panel to represent the game board. It contians methods for detecting
        the position selected by the human player.                           */
 
@@ -118,7 +329,8 @@ public class PlayTTT extends JFrame {
 		    else {
 			if (t.isDraw()) endGame("Game is a draw"); 
 			else {
-			    pos = computerPlay(COMPUTER,-1,4,0);
+			    pos = engine.chooseMove(t);
+			    if (show_stats) printStats();
  			    t.storePlay(pos.getRow(),pos.getCol(),COMPUTER);
 			    gameDisplay[pos.getRow()][pos.getCol()].setIcon(
 						new ImageIcon("computer.gif"));
@@ -133,70 +345,6 @@ public class PlayTTT extends JFrame {
         }
 
 
-	/* Explore the game tree and choose the best move for the computer */
-	private PosPlay computerPlay(char symbol, int highest_score, 
-                                     int lowest_score, int level) {
-
-	char opponent;           // Opponent's symbol
-        PosPlay reply;           // Opponent's best reply
- 
-        int bestRow = -1;
-        int bestColumn = -1;     // Position of best play
-
-        int value;
-	int lookupVal;
-
-	if (level == 0)   /* Create new hash table */
-	    configurations = t.createDictionary();    
-
-        if( symbol == COMPUTER ) {
-            opponent = HUMAN; value = -1;
-        }
-        else {
-            opponent = COMPUTER; value = 4;
-        }
-
-        for(int row = 0; row < board_size; row++)
-            for(int column = 0; column < board_size; column++) {
-                if(t.squareIsEmpty(row,column)) {     // Empty position
-                    t.storePlay(row,column,symbol);   // Store next play
-		    if (t.wins(symbol)||t.isDraw()||(level >= max_level))
-                        // Game ending situation or max number of levels reached 
-			reply = new PosPlay(t.evalBoard(),row,column);
-		    else {
-			lookupVal = t.repeatedConfig(configurations);
-			if (lookupVal != -1) 
-			    reply = new PosPlay(lookupVal,row,column);
-			else {
-			    reply = computerPlay(opponent, highest_score, 
-                                         lowest_score, level + 1);
-			    t.insertConfig(configurations,reply.getScore());
-			}
-		    }
-		    t.storePlay(row,column,' ');
-                    
-		    if((symbol == COMPUTER && reply.getScore() > value) ||
-		       (symbol == HUMAN && reply.getScore() < value)) {
-			 bestRow = row; 
-			 bestColumn = column;
-			 value = reply.getScore();
-
-			 /* Alpha/beta cut */
-			 if (symbol == COMPUTER && value > highest_score) 
-			     highest_score = value;
-			 else if (symbol == HUMAN && value < lowest_score) 
-			     lowest_score = value;
-
-			 if (highest_score >= lowest_score) 
-			     return new PosPlay(value, bestRow, bestColumn);
-		    }
-		    
-		}
-	    }
-         return new PosPlay(value, bestRow, bestColumn);
-        }
-
-
 	/* Prompt the user for a key to terminate the game */
 	private void endGame(String mssg) {
 	    System.out.println(mssg);
@@ -206,4 +354,10 @@ public class PlayTTT extends JFrame {
 	}
 
     }
+
+    /* Print how the engine chose its last move */
+    private void printStats()
+    {
+        System.out.println(engine.describeSearch());
+    }
 }
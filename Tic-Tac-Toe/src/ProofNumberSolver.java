@@ -0,0 +1,360 @@
+import java.util.Arrays;
+
+/**
+ * Class that works out whether a board is won, drawn or lost with perfect play, using
+ * depth-first proof-number search (df-pn). Instead of searching to a fixed depth, it
+ * proves one question: can a player (the attacker) force a win? Every board gets a
+ * proof number, the fewest unsolved boards that would have to be won to prove it, and
+ * a disproof number, the fewest that would have to be lost to disprove it. The search
+ * keeps going down to the board that is cheapest to settle, so it follows the forcing
+ * lines and leaves the rest alone, however deep the win is.
+ *
+ * The numbers are kept for the player about to play as phi and delta: at the
+ * attacker's turn phi is the proof number and delta the disproof number, and at the
+ * defender's turn the other way round. Then a board's phi is the smallest delta of
+ * the boards after it, and its delta is the sum of their phis. df-pn only goes back up
+ * a level once those pass the thresholds it was given, and keeps the numbers of the
+ * boards it has looked at in a table of fixed size, so it works within a memory budget.
+ *
+ * A board is won if the player about to play can prove a win, lost if the other player
+ * can, and drawn if neither can. Forced plays and wins by threats (see ThreatDetector)
+ * settle many boards without searching.
+ */
+public class ProofNumberSolver {
+	//The results, for the player about to play.
+	public static final int UNKNOWN = 0; //The budget ran out first.
+	public static final int LOSS = 1;
+	public static final int DRAW = 2;
+	public static final int WIN = 3;
+
+	//Larger than any real proof number; two of them still fit in an int.
+	private static final int INFINITY = (1 << 30) - 1;
+	//The number of slots looked at for each key.
+	private static final int BUCKET_SIZE = 4;
+	//The number of bytes each slot takes (key, numbers and work).
+	private static final int SLOT_BYTES = 20;
+	//How often the clock is read, in boards.
+	private static final int CHECK_INTERVAL = 1024;
+	//The most threats followed when looking for a win by threats.
+	private static final int THREAT_DEPTH = 2;
+	//How much worse the play being searched may get than the next one, as a fraction.
+	private static final int SWITCH_MARGIN = 4;
+	//Told apart from the keys of the first question, so one table holds both.
+	private static final long SECOND_QUESTION = 0x9E3779B97F4A7C15L;
+
+	//The table of numbers: the key of each board and its phi and delta packed into a
+	//long, with the number of boards searched under it (which is kept when it is full).
+	private long[] keys;
+	private long[] numbers;
+	private int[] work;
+	private int mask;
+
+	private long timeBudget; //The milliseconds a board may take (0 for no limit).
+	private long nodeBudget; //The boards that may be searched (0 for no limit).
+
+	//What the question being proved has got to.
+	private TicTacToe t; //The board being searched.
+	private char attacker; //The player trying to prove a win.
+	private long question; //XORed into every key, to keep the questions apart.
+	private long deadline; //The time the search must end by.
+	private boolean aborted; //Set when the budget has run out.
+	private long nodes; //The boards searched so far.
+	private int bestPlay; //The square that settled the last board solved (-1 if none).
+
+	/**
+	 * Constructor that sets up a solver with no budget.
+	 * @param megabytes The size of the table in megabytes.
+	 */
+	public ProofNumberSolver(int megabytes){
+		long wanted = Math.max(BUCKET_SIZE, (long) megabytes * 1024 * 1024 / SLOT_BYTES);
+		int slots = Integer.highestOneBit((int) Math.min(wanted, 1 << 30));
+		keys = new long[slots];
+		numbers = new long[slots];
+		work = new int[slots];
+		mask = slots - 1;
+	}
+
+	/**
+	 * Limits how long solving a board may take. The answer is UNKNOWN if either
+	 * budget runs out.
+	 * @param milliseconds The time it may take (0 for no limit).
+	 * @param positions The number of boards it may search (0 for no limit).
+	 */
+	public void setBudget(long milliseconds, long positions){
+		timeBudget = milliseconds;
+		nodeBudget = positions;
+	}
+
+	/**
+	 * Works out the result of a board with perfect play.
+	 * @param t The game board, which is left as it was given.
+	 * @param symbol The player about to play, either an X or an O.
+	 * @return WIN, DRAW or LOSS for the player, or UNKNOWN if the budget ran out.
+	 */
+	public int solve(TicTacToe t, char symbol){
+		char opponent = (symbol == 'X') ? 'O' : 'X';
+		this.t = t;
+		t.useThreats(true);
+		nodes = 0;
+		aborted = false;
+		deadline = (timeBudget > 0) ? System.currentTimeMillis() + timeBudget : Long.MAX_VALUE;
+		//Who attacks in each question depends on who plays first, so nothing is kept.
+		Arrays.fill(numbers, 0);
+		Arrays.fill(work, 0);
+
+		//Can the player win?
+		if (prove(symbol, symbol, 0L)) return WIN;
+		boolean drawn = !aborted;
+
+		//If not, can the other player?
+		if (prove(symbol, opponent, SECOND_QUESTION)) return LOSS;
+		return (drawn && !aborted) ? DRAW : UNKNOWN;
+	}
+
+	/**
+	 * Gets the play that settled the last board solved: a winning play if it was won,
+	 * or a play that doesn't lose if it was drawn.
+	 * @return The square (row * n + column), or -1 if it was lost or unknown.
+	 */
+	public int getBestPlay(){
+		return bestPlay;
+	}
+
+	/**
+	 * Gets the number of boards searched while solving the last board.
+	 * @return The number of boards.
+	 */
+	public long getNodes(){
+		return nodes;
+	}
+
+	/**
+	 * Helper method that proves or disproves that a player can force a win.
+	 * @param symbol The player about to play.
+	 * @param winner The player trying to prove a win (the attacker).
+	 * @param key XORed into every key for this question.
+	 * @return True if it was proved; false if it was disproved or the budget ran out.
+	 */
+	private boolean prove(char symbol, char winner, long key){
+		attacker = winner;
+		question = key;
+		bestPlay = -1;
+
+		long root = settled(symbol);
+		if (root == UNSETTLED){
+			root = search(symbol, INFINITY, INFINITY);
+		}
+		if (aborted) return false;
+
+		//The attacker wins if the attacker's phi (or the defender's delta) is 0.
+		boolean proved = (symbol == attacker) ? phi(root) == 0 : delta(root) == 0;
+
+		//A proved win (or a disproved loss) at the top was settled by a play whose delta is 0.
+		if (proved == (symbol == attacker) && t.evalBoard() == 1){
+			bestPlay = settlingPlay(symbol);
+		}
+		return proved;
+	}
+
+	/**
+	 * Helper method that searches a board until its phi or delta reaches a threshold.
+	 * @param symbol The player about to play.
+	 * @param phiLimit The threshold for phi.
+	 * @param deltaLimit The threshold for delta.
+	 * @return The board's phi and delta, packed.
+	 */
+	private long search(char symbol, int phiLimit, int deltaLimit){
+		char opponent = (symbol == 'X') ? 'O' : 'X';
+		int[] plays = plays(symbol);
+		long key = t.getKey() ^ question;
+		int size = t.getBoardSize();
+		int boardWork = 0;
+		nodes++;
+
+		while (true){
+			//phi is the smallest delta after a play, delta the sum of the phis.
+			int phi = INFINITY, delta = 0;
+			int best = -1, bestPhi = 0, secondDelta = INFINITY;
+			for (int i = 0; i < plays.length; i++){
+				t.storePlay(plays[i] / size, plays[i] % size, symbol);
+				long child = lookup(opponent);
+				t.storePlay(plays[i] / size, plays[i] % size, ' ');
+
+				delta = Math.min(INFINITY, delta + phi(child));
+				if (delta(child) < phi){
+					secondDelta = phi;
+					phi = delta(child);
+					best = i;
+					bestPhi = phi(child);
+				} else if (delta(child) < secondDelta){
+					secondDelta = delta(child);
+				}
+			}
+
+			if (phi >= phiLimit || delta >= deltaLimit || outOfBudget()){
+				long result = pack(phi, delta);
+				store(key, result, boardWork);
+				return result;
+			}
+
+			//Goes down to the play that is cheapest to settle, until it is a quarter worse
+			//than the next cheapest, so it doesn't keep switching between the two.
+			long before = nodes;
+			int switchAt = secondDelta + secondDelta / SWITCH_MARGIN + 1;
+			t.storePlay(plays[best] / size, plays[best] % size, symbol);
+			search(opponent, deltaLimit - delta + bestPhi, Math.min(phiLimit, switchAt));
+			t.storePlay(plays[best] / size, plays[best] % size, ' ');
+			boardWork += (int) Math.min(Integer.MAX_VALUE - boardWork, nodes - before);
+		}
+	}
+
+	/**
+	 * Helper method that gets the numbers of the board after a play, from the table
+	 * or, for a board that hasn't been searched, from whether it is settled.
+	 * @param symbol The player about to play on that board.
+	 * @return The board's phi and delta, packed.
+	 */
+	private long lookup(char symbol){
+		long key = t.getKey() ^ question;
+		int slot = find(key);
+		if (slot != -1) return numbers[slot];
+
+		long result = settled(symbol);
+		if (result == UNSETTLED) return pack(1, 1);
+		store(key, result, 0);
+		return result;
+	}
+
+	//Returned by settled() for a board that isn't settled.
+	private static final long UNSETTLED = -1;
+
+	/**
+	 * Helper method that sees if a board is settled without searching: the game is
+	 * over, or a player is certain to win by threats.
+	 * @param symbol The player about to play.
+	 * @return The board's phi and delta, packed (infinite or 0), or UNSETTLED.
+	 */
+	private long settled(char symbol){
+		int status = t.evalBoard();
+		if (status == 1){
+			status = t.threatStatus(symbol, THREAT_DEPTH);
+			if (status == 1) return UNSETTLED;
+		}
+
+		//Draws count as losses for the attacker.
+		boolean attackerWins = (attacker == 'O') ? status == 3 : status == 0;
+		return (attackerWins == (symbol == attacker)) ? pack(0, INFINITY) : pack(INFINITY, 0);
+	}
+
+	/**
+	 * Helper method that finds the play at the top that settled the question.
+	 * @param symbol The player about to play at the top.
+	 * @return The square whose board has a delta of 0, or -1 if there isn't one.
+	 */
+	private int settlingPlay(char symbol){
+		char opponent = (symbol == 'X') ? 'O' : 'X';
+		int size = t.getBoardSize();
+		int[] plays = plays(symbol);
+		int found = -1;
+		for (int i = 0; i < plays.length && found == -1; i++){
+			t.storePlay(plays[i] / size, plays[i] % size, symbol);
+			if (delta(lookup(opponent)) == 0) found = plays[i];
+			t.storePlay(plays[i] / size, plays[i] % size, ' ');
+		}
+		return found;
+	}
+
+	/**
+	 * Helper method that lists the plays worth searching: only the forced play if
+	 * there is one, otherwise every empty square, best first (see TicTacToe.sortedPlays)
+	 * so the first of the plays with the same numbers is the likeliest.
+	 * @param symbol The player about to play.
+	 * @return The squares.
+	 */
+	private int[] plays(char symbol){
+		return t.sortedPlays(symbol, false);
+	}
+
+	/**
+	 * Helper method that counts a board and checks the budget. Only reads the clock
+	 * every so often.
+	 * @return True if the search should give up.
+	 */
+	private boolean outOfBudget(){
+		if (nodeBudget > 0 && nodes >= nodeBudget){
+			aborted = true;
+		} else if (nodes % CHECK_INTERVAL == 0 && System.currentTimeMillis() > deadline){
+			aborted = true;
+		}
+		return aborted;
+	}
+
+	/**
+	 * Helper method that finds a board in the table.
+	 * @param key The board's key.
+	 * @return The slot, or -1 if it isn't there.
+	 */
+	private int find(long key){
+		int start = (int) key & mask;
+		for (int i = 0; i < BUCKET_SIZE; i++){
+			int slot = (start + i) & mask;
+			if (keys[slot] == key && numbers[slot] != 0) return slot;
+		}
+		return -1;
+	}
+
+	/**
+	 * Helper method that stores a board's numbers in the table. When the bucket is
+	 * full, the board that took the least searching is overwritten, since it is the
+	 * cheapest to work out again.
+	 * @param key The board's key.
+	 * @param value The board's phi and delta, packed.
+	 * @param searched The number of boards searched under it.
+	 */
+	private void store(long key, long value, int searched){
+		int start = (int) key & mask;
+		int replace = -1;
+		for (int i = 0; i < BUCKET_SIZE; i++){
+			int slot = (start + i) & mask;
+			if (keys[slot] == key || numbers[slot] == 0){
+				replace = slot;
+				break;
+			} else if (replace == -1 || work[slot] < work[replace]){
+				replace = slot;
+			}
+		}
+		//A board searched again keeps the work done on it before.
+		if (keys[replace] != key) work[replace] = 0;
+		keys[replace] = key;
+		numbers[replace] = value;
+		work[replace] = Math.max(work[replace], searched);
+	}
+
+	/**
+	 * Helper method that packs phi and delta into a long.
+	 * @param phi The phi.
+	 * @param delta The delta.
+	 * @return The packed numbers (never 0, which marks an empty slot).
+	 */
+	private static long pack(int phi, int delta){
+		return ((long) phi << 32) | delta | (1L << 62);
+	}
+
+	/**
+	 * Helper method that gets phi out of packed numbers.
+	 * @param value The packed numbers.
+	 * @return The phi.
+	 */
+	private static int phi(long value){
+		return (int) (value >>> 32) & INFINITY;
+	}
+
+	/**
+	 * Helper method that gets delta out of packed numbers.
+	 * @param value The packed numbers.
+	 * @return The delta.
+	 */
+	private static int delta(long value){
+		return (int) value;
+	}
+}
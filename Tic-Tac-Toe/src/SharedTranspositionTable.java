@@ -0,0 +1,202 @@
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Class that stores the scores of searched configurations for several threads at
+ * once, without locks. Each slot is two longs in one flat array: the data (the packed
+ * value from TranspositionTable.pack and the search that stored it) and the key
+ * XORed with the data. Threads read and write the two longs with no locking, so two
+ * threads storing into the same slot at once can leave the key of one with the data
+ * of the other. Such a slot no longer XORs back to either key, so it is treated as
+ * empty: a race can lose an entry but never gives a configuration another one's score.
+ *
+ * Otherwise it works like TranspositionTable: the slots are split into buckets, and
+ * when a bucket is full the slots from earlier searches are overwritten first, then
+ * the slot that was searched least deeply.
+ */
+public class SharedTranspositionTable implements TranspositionTableADT {
+	//The number of slots looked at for each key.
+	private static final int BUCKET_SIZE = 4;
+	//The number of bytes each slot takes (two longs).
+	private static final int SLOT_BYTES = 16;
+	//Stored in the data of an empty slot. No packed value is 0, since the bound never is.
+	private static final int EMPTY = 0;
+	//The generation given to every slot when the counter wraps around. No search uses it.
+	private static final byte OLD = 0;
+
+	private long[] slots; //The key XORed with the data, then the data, for each slot.
+	private byte generation = 1; //The current search (never OLD).
+	private int mask; //Used to turn a hash into a slot number.
+
+	//The tables kept between games, keyed by board size and number to win.
+	private static HashMap<String, SharedTranspositionTable> shared = new HashMap<String, SharedTranspositionTable>();
+
+	/**
+	 * Constructor that creates an empty table that uses about the given memory.
+	 * @param megabytes The size of the table in megabytes.
+	 */
+	public SharedTranspositionTable(int megabytes){
+		int count = slotsFor(megabytes);
+		slots = new long[count * 2];
+		mask = count - 1;
+	}
+
+	/**
+	 * Gets the table kept for a board size and number to win, creating it the first
+	 * time, the same way as TranspositionTable.shared.
+	 * @param name The board size, number to win and anything else that changes the scores.
+	 * @param megabytes The size of the table in megabytes.
+	 * @return The table for that board.
+	 */
+	public static synchronized SharedTranspositionTable shared(String name, int megabytes){
+		SharedTranspositionTable table = shared.get(name);
+
+		//Creates the table if there isn't one, or if the one there is the wrong size.
+		if (table == null || table.capacity() != slotsFor(megabytes)){
+			table = new SharedTranspositionTable(megabytes);
+			shared.put(name, table);
+		}
+		return table;
+	}
+
+	/**
+	 * Helper method that works out how many slots fit in the given memory. Uses the
+	 * largest power of two that fits, so a hash can be turned into a slot with a mask.
+	 * @param megabytes The size of the table in megabytes.
+	 * @return The number of slots.
+	 */
+	private static int slotsFor(int megabytes){
+		long wanted = Math.max(BUCKET_SIZE, (long) megabytes * 1024 * 1024 / SLOT_BYTES);
+		return Integer.highestOneBit((int) Math.min(wanted, 1 << 29));
+	}
+
+	/**
+	 * Starts a new search. Must not be called while other threads are using the table.
+	 * When the generation wraps around, every slot is marked as old, as in
+	 * TranspositionTable.
+	 */
+	public void newSearch(){
+		if (++generation == OLD){
+			for (int slot = 0; slot < slots.length; slot += 2){
+				long data = slots[slot + 1];
+				if (value(data) != EMPTY) write(slot, slots[slot] ^ data, value(data), OLD);
+			}
+			generation = OLD + 1;
+		}
+	}
+
+	/**
+	 * Empties the table. Must not be called while other threads are using the table.
+	 */
+	public void clear(){
+		Arrays.fill(slots, 0);
+	}
+
+	/**
+	 * Gets the number of slots in the table.
+	 * @return The number of slots.
+	 */
+	public int capacity(){
+		return slots.length / 2;
+	}
+
+	/**
+	 * Finds the value stored for a configuration. Can be called by any thread at any time.
+	 * @param key The hash of the configuration.
+	 * @return The packed value, or TranspositionTable.MISS if it is not in the table.
+	 */
+	public int probe(long key){
+		int start = (int) key & mask;
+		for (int i = 0; i < BUCKET_SIZE; i++){
+			int slot = ((start + i) & mask) << 1;
+			//Reads the data once, so it is checked and returned as the same value.
+			long data = slots[slot + 1];
+			if ((slots[slot] ^ data) == key && value(data) != EMPTY){
+				//Still useful to this search, so it is no longer the first to go.
+				if (generation(data) != generation) write(slot, key, value(data), generation);
+				return value(data);
+			}
+		}
+		return TranspositionTable.MISS;
+	}
+
+	/**
+	 * Stores the value for a configuration. Can be called by any thread at any time. A
+	 * slot already holding the same configuration is reused, then an empty slot; if
+	 * the bucket is full, a slot from an earlier search is overwritten before one from
+	 * this search, and the one with the smallest search depth is picked among those.
+	 * @param key The hash of the configuration.
+	 * @param value The packed value.
+	 */
+	public void store(long key, int value){
+		int start = (int) key & mask;
+		int replace = -1;
+		long replaced = 0;
+
+		for (int i = 0; i < BUCKET_SIZE; i++){
+			int slot = ((start + i) & mask) << 1;
+			long data = slots[slot + 1];
+			if (value(data) == EMPTY){
+				//Keeps looking in case the configuration is further along.
+				if (replace == -1 || value(replaced) != EMPTY){
+					replace = slot;
+					replaced = data;
+				}
+			} else if ((slots[slot] ^ data) == key){
+				write(slot, key, value, generation);
+				return;
+			} else if (replace == -1 || (value(replaced) != EMPTY && worse(data, replaced))){
+				replace = slot;
+				replaced = data;
+			}
+		}
+		write(replace, key, value, generation);
+	}
+
+	/**
+	 * Helper method that writes a configuration into a slot.
+	 * @param slot The index of the slot's first long.
+	 * @param key The hash of the configuration.
+	 * @param value The packed value.
+	 * @param search The generation of the search storing it.
+	 */
+	private void write(int slot, long key, int value, byte search){
+		long data = (value & 0xFFFFFFFFL) | ((long) (search & 0xFF) << 32);
+		slots[slot + 1] = data;
+		slots[slot] = key ^ data;
+	}
+
+	/**
+	 * Helper method that sees if one full slot should be overwritten before another.
+	 * @param data The data of the slot being looked at.
+	 * @param other The data of the slot that would be overwritten otherwise.
+	 * @return True if the first slot is the better one to overwrite.
+	 */
+	private boolean worse(long data, long other){
+		//Slots left over from earlier searches go first.
+		boolean stale = generation(data) != generation;
+		boolean otherStale = generation(other) != generation;
+		if (stale != otherStale) return stale;
+
+		//Then the configuration that was searched least deeply.
+		return TranspositionTable.depth(value(data)) < TranspositionTable.depth(value(other));
+	}
+
+	/**
+	 * Helper method that gets the packed value out of a slot's data.
+	 * @param data The slot's data.
+	 * @return The packed value (EMPTY if the slot is empty).
+	 */
+	private static int value(long data){
+		return (int) data;
+	}
+
+	/**
+	 * Helper method that gets the search that stored a slot out of its data.
+	 * @param data The slot's data.
+	 * @return The search's generation.
+	 */
+	private static byte generation(long data){
+		return (byte) (data >>> 32);
+	}
+}
@@ -0,0 +1,98 @@
+/**
+ * Bitboard for boards of up to 8x8, where every player's squares fit in a single long.
+ */
+public class SmallBitBoard extends BitBoard {
+	private long[] stones; //The squares each player has played, indexed by player.
+	private long[] masks; //The squares a step in each direction can be taken from.
+	private long full; //A bit for every square on the board.
+
+	/**
+	 * Constructor that creates an empty board.
+	 * @param size The size of the board (n), at most 8.
+	 * @param toWin The number of squares in a line needed to win (k).
+	 */
+	public SmallBitBoard(int size, int toWin){
+		super(size, toWin);
+		if (squares > Long.SIZE) throw new IllegalArgumentException("Board too large: " + size);
+
+		stones = new long[2];
+		full = (squares == Long.SIZE) ? -1L : (1L << squares) - 1;
+
+		//Works out the squares that won't wrap onto another row for each direction.
+		masks = new long[shifts.length];
+		for (int d = 0; d < masks.length; d++){
+			for (int square = 0; square < squares; square++){
+				if (stepsOnBoard(square, d)) masks[d] |= 1L << square;
+			}
+		}
+	}
+
+	/**
+	 * Constructor that copies another board.
+	 * @param other The board to copy.
+	 */
+	private SmallBitBoard(SmallBitBoard other){
+		super(other.size, other.toWin);
+		stones = other.stones.clone();
+		masks = other.masks;
+		full = other.full;
+	}
+
+	/**
+	 * Gets the squares a player has played as a set of bits.
+	 * @param player HUMAN or COMPUTER.
+	 * @return A bit for every square the player has played.
+	 */
+	public long bits(int player){
+		return stones[player];
+	}
+
+	public int get(int square){
+		long bit = 1L << square;
+		if ((stones[HUMAN] & bit) != 0) return HUMAN;
+		if ((stones[COMPUTER] & bit) != 0) return COMPUTER;
+		return EMPTY;
+	}
+
+	public void set(int square, int player){
+		long bit = 1L << square;
+		stones[player] |= bit;
+		stones[1 - player] &= ~bit;
+	}
+
+	public void clear(int square){
+		long bit = ~(1L << square);
+		stones[HUMAN] &= bit;
+		stones[COMPUTER] &= bit;
+	}
+
+	public boolean hasWin(int player){
+		long played = stones[player];
+
+		//For each direction, keeps the squares that start a run one longer each time.
+		for (int d = 0; d < shifts.length; d++){
+			long run = played;
+			for (int i = 1; i < toWin && run != 0; i++){
+				run = played & masks[d] & (run >>> shifts[d]);
+			}
+			if (run != 0) return true;
+		}
+		return false;
+	}
+
+	public int emptyCount(){
+		return squares - Long.bitCount(stones[HUMAN] | stones[COMPUTER]);
+	}
+
+	public int nextEmpty(int from){
+		if (from >= squares) return -1;
+
+		//Drops the squares before the starting one and takes the lowest bit left.
+		long empty = ~(stones[HUMAN] | stones[COMPUTER]) & full & (-1L << from);
+		return (empty == 0) ? -1 : Long.numberOfTrailingZeros(empty);
+	}
+
+	public BitBoard copy(){
+		return new SmallBitBoard(this);
+	}
+}
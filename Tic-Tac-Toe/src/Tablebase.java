@@ -0,0 +1,136 @@
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Class that looks up the perfect-play result of any board in a tablebase file made by
+ * TablebaseGenerator. The file holds one byte for every way the squares can be filled
+ * with X, O or nothing, so a board is found by reading its base 3 number (see
+ * TicTacToe.tablebaseIndex) and nothing is searched. The file is memory mapped, so only
+ * the parts that are read are loaded, and several games can share it.
+ *
+ * Each byte packs the result for the player about to play (bits 6-7) and the number
+ * of plays left until the game ends if both players play perfectly (bits 0-5): the
+ * winner ends the game as soon as possible and the loser puts it off. A byte of 0 is
+ * a board that can't be reached by playing, X first.
+ */
+public class Tablebase {
+	//The results, for the player about to play.
+	public static final int UNKNOWN = 0; //The board can't be reached.
+	public static final int LOSS = 1;
+	public static final int DRAW = 2;
+	public static final int WIN = 3;
+
+	//The file starts with these four ints, then has one byte for every board.
+	public static final int MAGIC = 0x54545442; //"TTTB"
+	public static final int VERSION = 1;
+	public static final int HEADER_BYTES = 16;
+	//The largest board that fits (3^16 bytes); 5x5 would need 3^25.
+	public static final int MAX_SQUARES = 16;
+
+	private MappedByteBuffer entries; //The byte for every board, after the header.
+	private int boardSize; //The size of the board (n).
+	private int toWin; //The number of squares in a line needed to win (k).
+
+	/**
+	 * Constructor that maps a tablebase file into memory.
+	 * @param file The name of the file.
+	 * @throws IOException If the file can't be read or isn't a tablebase.
+	 */
+	public Tablebase(String file) throws IOException {
+		FileChannel channel = FileChannel.open(Paths.get(file), StandardOpenOption.READ);
+		try {
+			//The mapping stays valid after the channel is closed.
+			MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			if (channel.size() < HEADER_BYTES || mapped.getInt(0) != MAGIC || mapped.getInt(4) != VERSION){
+				throw new IOException(file + " is not a tablebase");
+			}
+			boardSize = mapped.getInt(8);
+			toWin = mapped.getInt(12);
+			if (boardSize * boardSize > MAX_SQUARES || channel.size() != HEADER_BYTES + boards(boardSize)){
+				throw new IOException(file + " is the wrong length");
+			}
+			entries = mapped;
+		} finally {
+			channel.close();
+		}
+	}
+
+	/**
+	 * Gets the size of the board the tablebase is for (n).
+	 * @return The size of the board.
+	 */
+	public int getBoardSize(){
+		return boardSize;
+	}
+
+	/**
+	 * Gets the number of squares in a line needed to win in the tablebase (k).
+	 * @return The number to win.
+	 */
+	public int getWinAmount(){
+		return toWin;
+	}
+
+	/**
+	 * Sees if the tablebase holds the boards of a game.
+	 * @param t The game board.
+	 * @return True if the game has the same board size and number to win.
+	 */
+	public boolean covers(TicTacToe t){
+		return t.getBoardSize() == boardSize && t.getWinAmount() == toWin;
+	}
+
+	/**
+	 * Looks up a board.
+	 * @param index The board's base 3 number (see TicTacToe.tablebaseIndex).
+	 * @return The packed entry, which can be read with result() and distance().
+	 */
+	public int probe(long index){
+		return entries.get(HEADER_BYTES + (int) index) & 0xFF;
+	}
+
+	/**
+	 * Packs a result and a distance into an entry.
+	 * @param result LOSS, DRAW or WIN for the player about to play.
+	 * @param distance The number of plays left with perfect play.
+	 * @return The packed entry.
+	 */
+	public static int pack(int result, int distance){
+		return (result << 6) | distance;
+	}
+
+	/**
+	 * Gets the result out of an entry.
+	 * @param entry The packed entry.
+	 * @return UNKNOWN, LOSS, DRAW or WIN for the player about to play.
+	 */
+	public static int result(int entry){
+		return (entry >>> 6) & 3;
+	}
+
+	/**
+	 * Gets the distance out of an entry.
+	 * @param entry The packed entry.
+	 * @return The number of plays left until the game ends with perfect play.
+	 */
+	public static int distance(int entry){
+		return entry & 63;
+	}
+
+	/**
+	 * Works out how many boards a tablebase holds, one for every way of filling the
+	 * squares with X, O or nothing.
+	 * @param size The size of the board (n).
+	 * @return 3 to the power of n * n.
+	 */
+	public static long boards(int size){
+		long count = 1;
+		for (int i = 0; i < size * size; i++){
+			count *= 3;
+		}
+		return count;
+	}
+}
@@ -0,0 +1,140 @@
+/**
+ * Class that chooses the computer's move by looking it up in a tablebase, with no
+ * search at all. Every empty square is tried and the board after it is looked up;
+ * the computer takes the quickest win, else a draw, else the slowest loss, so it
+ * plays perfectly. Boards the tablebase doesn't hold (another board size or number
+ * to win) are passed on to another engine, which the settings go to as well.
+ */
+public class TablebaseEngine implements GameEngine {
+	private static final char COMPUTER = 'O';
+	//The scores of TicTacToe.evalBoard for each result of the computer.
+	private static final int HUMAN_WINS = 0;
+	private static final int DRAW = 2;
+	private static final int COMPUTER_WINS = 3;
+
+	private Tablebase table; //The perfect-play results.
+	private GameEngine fallback; //Chooses the moves the tablebase can't.
+	private boolean used; //Whether the last move came from the tablebase.
+	private long lookups; //The boards looked up for the last move.
+	private int distance; //The plays left after the last move, with perfect play.
+
+	/**
+	 * Constructor that sets up the engine.
+	 * @param table The tablebase.
+	 * @param fallback The engine for the boards the tablebase doesn't hold.
+	 */
+	public TablebaseEngine(Tablebase table, GameEngine fallback){
+		this.table = table;
+		this.fallback = fallback;
+	}
+
+	/**
+	 * Chooses the computer's move from the tablebase if it holds the board.
+	 * @param t The game board.
+	 * @return The play and its score: COMPUTER_WINS, DRAW or HUMAN_WINS with perfect play.
+	 */
+	public PosPlay chooseMove(TicTacToe t){
+		int size = t.getBoardSize();
+		int bestSquare = -1;
+		int best = Tablebase.UNKNOWN;
+		lookups = 0;
+
+		if (table.covers(t)){
+			for (int square = t.nextEmpty(0); square != -1; square = t.nextEmpty(square + 1)){
+				t.storePlay(square / size, square % size, COMPUTER);
+				int entry = table.probe(t.tablebaseIndex());
+				t.storePlay(square / size, square % size, ' ');
+				lookups++;
+
+				//The entry is for the human, who plays next.
+				if (Tablebase.result(entry) == Tablebase.UNKNOWN){
+					bestSquare = -1;
+					break;
+				}
+				int result = Tablebase.WIN + Tablebase.LOSS - Tablebase.result(entry);
+				int plays = Tablebase.distance(entry) + 1;
+				if (result > best || (result == best && (result == Tablebase.LOSS ? plays > distance : plays < distance))){
+					best = result;
+					distance = plays;
+					bestSquare = square;
+				}
+			}
+		}
+
+		//A board that can't come from playing, X first, isn't in the tablebase.
+		used = bestSquare != -1;
+		if (!used) return fallback.chooseMove(t);
+
+		int score = (best == Tablebase.WIN) ? COMPUTER_WINS : (best == Tablebase.DRAW) ? DRAW : HUMAN_WINS;
+		return new PosPlay(score, bestSquare / size, bestSquare % size);
+	}
+
+	/**
+	 * Limits how long the other engine may think about a move.
+	 * @param milliseconds The time a move may take (0 for no limit).
+	 * @param positions The number of positions a move may look at (0 for no limit).
+	 */
+	public void setBudget(long milliseconds, long positions){
+		fallback.setBudget(milliseconds, positions);
+	}
+
+	/**
+	 * Sets how many threads the other engine uses.
+	 * @param threads The number of threads (0 for one per core).
+	 */
+	public void setThreads(int threads){
+		fallback.setThreads(threads);
+	}
+
+	/**
+	 * Sets whether the other engine scores unfinished boards.
+	 * @param on True to score unfinished boards.
+	 */
+	public void setHeuristic(boolean on){
+		fallback.setHeuristic(on);
+	}
+
+	/**
+	 * Sets whether the other engine finds forced plays without searching.
+	 * @param on True to find forced plays.
+	 */
+	public void setThreats(boolean on){
+		fallback.setThreats(on);
+	}
+
+	/**
+	 * Gets the number of boards looked up (or, for the other engine, positions
+	 * searched) while choosing the last move.
+	 * @return The number of positions.
+	 */
+	public long getNodes(){
+		return used ? lookups : fallback.getNodes();
+	}
+
+	/**
+	 * Gets the number of plays left in the game after the last move with perfect
+	 * play (or, for the other engine, the number of levels searched).
+	 * @return The number of levels.
+	 */
+	public int getDepth(){
+		return used ? distance : fallback.getDepth();
+	}
+
+	/**
+	 * Sees if the last move was cut short by the budget, which never happens with
+	 * the tablebase.
+	 * @return True if the budget ran out.
+	 */
+	public boolean wasStopped(){
+		return !used && fallback.wasStopped();
+	}
+
+	/**
+	 * Describes the boards looked up for the last move, or the other engine's search.
+	 * @return One line about the last move's search.
+	 */
+	public String describeSearch(){
+		if (!used) return fallback.describeSearch();
+		return "Looked up " + lookups + " boards in the tablebase, " + distance + " plays left with perfect play";
+	}
+}
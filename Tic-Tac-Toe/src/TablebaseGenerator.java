@@ -0,0 +1,305 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Class that solves a small board completely and writes the result as a tablebase
+ * file (see Tablebase). Every board is numbered by its base 3 number, and playing a
+ * square only ever makes that number bigger, so the boards can be handled in layers
+ * by the number of squares played:
+ * - Going forward from the empty board, every board that can be reached by playing
+ *   (X first, stopping once someone wins) is marked.
+ * - Going back from the full boards (retrograde analysis), every reached board is
+ *   solved from the boards one play later, which are already solved: a board is won
+ *   if a play leaves the other player lost, drawn if the best play draws, and lost
+ *   otherwise.
+ * The boards in a layer don't depend on each other, so each layer is split between
+ * the threads of a fork-join pool.
+ *
+ * To run it type: java TablebaseGenerator size to_win file [-threads=N]
+ */
+public class TablebaseGenerator {
+	//Marks a board that can be reached but hasn't been solved yet. Every board is
+	//solved before the file is written, so it is never in a file.
+	private static final byte REACHED = 1;
+	//The number of boards a task handles itself instead of splitting them.
+	private static final int CHUNK = 4096;
+
+	private int size; //The size of the board (n).
+	private int toWin; //The number of squares in a line needed to win (k).
+	private int squares; //The number of squares (n * n).
+	private int[] powers; //3 to the power of each square.
+	private byte[] entries; //The entry of every board, as in the file.
+	private int[][] layers; //The boards with possible numbers of X's and O's, by squares played.
+
+	/**
+	 * Constructor that sets up an unsolved tablebase.
+	 * @param size The size of the board (n).
+	 * @param toWin The number of squares in a line needed to win (k).
+	 */
+	public TablebaseGenerator(int size, int toWin){
+		this.size = size;
+		this.toWin = toWin;
+		squares = size * size;
+		if (squares > Tablebase.MAX_SQUARES) throw new IllegalArgumentException("Board too large: " + size);
+
+		powers = new int[squares];
+		for (int square = 0; square < squares; square++){
+			powers[square] = (square == 0) ? 1 : powers[square - 1] * 3;
+		}
+		entries = new byte[(int) Tablebase.boards(size)];
+		sortLayers();
+	}
+
+	/**
+	 * Solves every board that can be reached.
+	 * @param threads The number of threads to use (0 for one per core).
+	 */
+	public void generate(int threads){
+		if (threads <= 0) threads = Runtime.getRuntime().availableProcessors();
+		ForkJoinPool pool = new ForkJoinPool(threads);
+
+		//Marks the boards that can be reached, one play at a time.
+		entries[0] = REACHED;
+		for (int played = 0; played < squares; played++){
+			pool.invoke(new LayerTask(played, true, 0, layers[played].length));
+		}
+
+		//Solves them, starting from the full boards.
+		for (int played = squares; played >= 0; played--){
+			pool.invoke(new LayerTask(played, false, 0, layers[played].length));
+		}
+		pool.shutdown();
+	}
+
+	/**
+	 * Gets the entry of a board.
+	 * @param index The board's base 3 number.
+	 * @return The packed entry (see Tablebase).
+	 */
+	public int entry(int index){
+		return entries[index] & 0xFF;
+	}
+
+	/**
+	 * Writes the tablebase to a file.
+	 * @param file The name of the file.
+	 * @throws IOException If the file can't be written.
+	 */
+	public void write(String file) throws IOException {
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+		try {
+			out.writeInt(Tablebase.MAGIC);
+			out.writeInt(Tablebase.VERSION);
+			out.writeInt(size);
+			out.writeInt(toWin);
+			out.write(entries);
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Helper method that lists the boards with each number of squares played. Only
+	 * boards with as many X's as O's, or one more X, can come up, since X plays first.
+	 * Counts up through every board in base 3, keeping the number of X's and O's.
+	 */
+	private void sortLayers(){
+		int[] counts = new int[squares + 1];
+		for (int pass = 0; pass < 2; pass++){
+			if (pass == 1){
+				layers = new int[squares + 1][];
+				for (int played = 0; played <= squares; played++){
+					layers[played] = new int[counts[played]];
+					counts[played] = 0;
+				}
+			}
+
+			int[] digits = new int[squares];
+			int xs = 0, os = 0;
+			for (int index = 0; index < entries.length; index++){
+				if (xs == os || xs == os + 1){
+					if (pass == 1) layers[xs + os][counts[xs + os]] = index;
+					counts[xs + os]++;
+				}
+
+				//Adds one, carrying into the next square when a square goes back to empty.
+				for (int square = 0; square < squares; square++){
+					if (digits[square] == 1) xs--;
+					if (digits[square] == 2) os--;
+					digits[square] = (digits[square] + 1) % 3;
+					if (digits[square] == 1) xs++;
+					if (digits[square] == 2) os++;
+					if (digits[square] != 0) break;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Helper method that sets up a bitboard from a board's base 3 number.
+	 * @param board The bitboard.
+	 * @param index The board's base 3 number.
+	 */
+	private void decode(BitBoard board, int index){
+		for (int square = 0; square < squares; square++){
+			int digit = index % 3;
+			index /= 3;
+			if (digit == 0){
+				board.clear(square);
+			} else {
+				board.set(square, digit - 1);
+			}
+		}
+	}
+
+	/**
+	 * Helper method that marks the boards one play after a reached board.
+	 * @param board A bitboard to work on.
+	 * @param index The board's base 3 number.
+	 * @param played The number of squares played on it.
+	 */
+	private void expand(BitBoard board, int index, int played){
+		if (entries[index] != REACHED) return;
+		decode(board, index);
+		if (board.hasWin(BitBoard.HUMAN) || board.hasWin(BitBoard.COMPUTER)) return;
+
+		//The same board may be marked by two threads at once, but both write the same byte.
+		int player = (played % 2 == 0) ? BitBoard.HUMAN : BitBoard.COMPUTER;
+		for (int square = board.nextEmpty(0); square != -1; square = board.nextEmpty(square + 1)){
+			entries[index + (player + 1) * powers[square]] = REACHED;
+		}
+	}
+
+	/**
+	 * Helper method that solves a reached board from the boards one play after it.
+	 * @param board A bitboard to work on.
+	 * @param index The board's base 3 number.
+	 * @param played The number of squares played on it.
+	 */
+	private void solve(BitBoard board, int index, int played){
+		if (entries[index] != REACHED) return;
+		decode(board, index);
+		int player = (played % 2 == 0) ? BitBoard.HUMAN : BitBoard.COMPUTER;
+
+		//The other player has just won, or nobody can play.
+		if (board.hasWin(1 - player)){
+			entries[index] = (byte) Tablebase.pack(Tablebase.LOSS, 0);
+			return;
+		} else if (played == squares){
+			entries[index] = (byte) Tablebase.pack(Tablebase.DRAW, 0);
+			return;
+		}
+
+		//Takes the best play: the quickest win, else a draw, else the slowest loss.
+		int best = Tablebase.UNKNOWN;
+		int distance = 0;
+		for (int square = board.nextEmpty(0); square != -1; square = board.nextEmpty(square + 1)){
+			int entry = entries[index + (player + 1) * powers[square]] & 0xFF;
+			int result = Tablebase.WIN + Tablebase.LOSS - Tablebase.result(entry);
+			int plays = Tablebase.distance(entry) + 1;
+			if (result > best || (result == best && (result == Tablebase.LOSS ? plays > distance : plays < distance))){
+				best = result;
+				distance = plays;
+			}
+		}
+		entries[index] = (byte) Tablebase.pack(best, distance);
+	}
+
+	/**
+	 * Task that marks or solves a range of the boards in a layer.
+	 */
+	private class LayerTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private int played; //The layer (the number of squares played).
+		private boolean forward; //True to mark the next boards, false to solve.
+		private int from; //The first board in the range.
+		private int to; //One past the last board in the range.
+
+		/**
+		 * Constructor that sets up the task.
+		 * @param played The layer.
+		 * @param forward True to mark the next boards, false to solve.
+		 * @param from The first board in the range.
+		 * @param to One past the last board in the range.
+		 */
+		public LayerTask(int played, boolean forward, int from, int to){
+			this.played = played;
+			this.forward = forward;
+			this.from = from;
+			this.to = to;
+		}
+
+		/**
+		 * Splits the range in two until it is small, then handles it.
+		 */
+		protected void compute(){
+			if (to - from > CHUNK){
+				int middle = (from + to) >>> 1;
+				LayerTask left = new LayerTask(played, forward, from, middle);
+				left.fork();
+				new LayerTask(played, forward, middle, to).compute();
+				left.join();
+				return;
+			}
+
+			BitBoard board = BitBoard.create(size, toWin);
+			for (int i = from; i < to; i++){
+				if (forward){
+					expand(board, layers[played][i], played);
+				} else {
+					solve(board, layers[played][i], played);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Solves a board and writes its tablebase.
+	 * @param args The size of the board, the number to win, the file and -threads=N.
+	 */
+	public static void main(String[] args){
+		int threads = 0;
+		boolean valid = args.length == 3 || (args.length == 4 && args[3].startsWith("-threads="));
+		if (valid && args.length == 4) threads = Integer.parseInt(args[3].substring(9));
+		if (!valid){
+			System.out.println("Usage: java TablebaseGenerator board-size symbols-inline-to-win file [-threads=N]");
+			System.exit(0);
+		}
+		int size = Integer.parseInt(args[0]);
+		int toWin = Integer.parseInt(args[1]);
+		if (size * size > Tablebase.MAX_SQUARES){
+			System.out.println("Boards of more than " + Tablebase.MAX_SQUARES + " squares don't fit in a tablebase");
+			System.exit(0);
+		}
+
+		long start = System.currentTimeMillis();
+		TablebaseGenerator generator = new TablebaseGenerator(size, toWin);
+		generator.generate(threads);
+		long solved = System.currentTimeMillis() - start;
+
+		//Counts the results.
+		long[] results = new long[4];
+		for (int index = 0; index < generator.entries.length; index++){
+			results[Tablebase.result(generator.entry(index))]++;
+		}
+		String[] names = {"", "loses", "draws", "wins"};
+		int empty = generator.entry(0);
+
+		try {
+			generator.write(args[2]);
+		} catch (IOException e){
+			System.out.println("Could not write " + args[2] + ": " + e.getMessage());
+			System.exit(1);
+		}
+		System.out.println(size + "x" + size + ", " + toWin + " to win: "
+				+ (results[1] + results[2] + results[3]) + " boards can be reached ("
+				+ results[3] + " won, " + results[2] + " drawn and " + results[1]
+				+ " lost for the player about to play), solved in " + solved + " ms");
+		System.out.println("The first player " + names[Tablebase.result(empty)]
+				+ " with perfect play; the game lasts " + Tablebase.distance(empty) + " plays");
+	}
+}
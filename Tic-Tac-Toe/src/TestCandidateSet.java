@@ -0,0 +1,98 @@
+import java.util.ArrayList;
+import java.util.Random;
+
+public class TestCandidateSet {
+
+  /*
+  ** Test program for the CandidateSet class. The candidates it keeps up to
+  ** date as squares are played and taken back are checked against the
+  ** empty squares found near a played square by looking at the whole board.
+  */
+
+  public static void main(String[] args) {
+    BitBoard board;
+    CandidateSet candidates;
+
+    // Test 1: the only candidate on an empty board is the centre.
+    board = BitBoard.create(15, 5);
+    candidates = new CandidateSet(board, CandidateSet.DISTANCE);
+    if (candidates.next(0) == 7 * 15 + 7 && candidates.next(7 * 15 + 8) == -1)
+      System.out.println("   Test 1 succeeded");
+    else System.out.println("***Test 1 failed");
+
+    // Test 2: a play in the corner makes the squares near it candidates,
+    // but not the corner itself, and taking it back empties the set again.
+    board.set(0, BitBoard.HUMAN);
+    candidates.add(0);
+    boolean corner = list(candidates).equals(brute(board, CandidateSet.DISTANCE)) &&
+        candidates.next(0) == 1;
+    board.clear(0);
+    candidates.remove(0);
+    if (corner && candidates.next(0) == 7 * 15 + 7)
+      System.out.println("   Test 2 succeeded");
+    else System.out.println("***Test 2 failed");
+
+    // Test 3: random plays and take-backs on large boards always give the
+    // same candidates as looking at the whole board, as do copies.
+    Random random = new Random(3);
+    int bad = 0;
+    for (int game = 0; game < 100; game++) {
+      int n = CandidateSet.MIN_BOARD_SIZE + random.nextInt(10);
+      int distance = 1 + random.nextInt(3);
+      board = BitBoard.create(n, 5);
+      candidates = new CandidateSet(board, distance);
+      ArrayList<Integer> played = new ArrayList<Integer>();
+      for (int step = 0; step < 150; step++) {
+        if (!played.isEmpty() && random.nextInt(3) == 0) {
+          int square = played.remove(random.nextInt(played.size()));
+          board.clear(square);
+          candidates.remove(square);
+        } else {
+          int square;
+          do square = random.nextInt(n * n); while (board.get(square) != BitBoard.EMPTY);
+          board.set(square, random.nextInt(2));
+          candidates.add(square);
+          played.add(square);
+        }
+        if (random.nextInt(10) == 0) candidates = new CandidateSet(candidates);
+        if (!list(candidates).equals(brute(board, distance))) bad++;
+      }
+    }
+    if (bad == 0) System.out.println("   Test 3 succeeded");
+    else System.out.println("***Test 3 failed: " + bad + " wrong sets");
+
+    // Test 4: a set made from a board that is already played on finds the
+    // same candidates.
+    if (list(new CandidateSet(board, 2)).equals(brute(board, 2)))
+      System.out.println("   Test 4 succeeded");
+    else System.out.println("***Test 4 failed");
+  }
+
+  // Lists the candidates in order.
+  private static ArrayList<Integer> list(CandidateSet candidates) {
+    ArrayList<Integer> squares = new ArrayList<Integer>();
+    for (int square = candidates.next(0); square != -1; square = candidates.next(square + 1))
+      squares.add(square);
+    return squares;
+  }
+
+  // Lists the empty squares within the distance of a played square, or the
+  // centre if nothing has been played.
+  private static ArrayList<Integer> brute(BitBoard board, int distance) {
+    int n = board.getSize();
+    ArrayList<Integer> squares = new ArrayList<Integer>();
+    if (board.emptyCount() == n * n) {
+      squares.add((n / 2) * n + n / 2);
+      return squares;
+    }
+    for (int square = 0; square < n * n; square++) {
+      if (board.get(square) != BitBoard.EMPTY) continue;
+      boolean near = false;
+      for (int other = 0; other < n * n && !near; other++)
+        near = board.get(other) != BitBoard.EMPTY &&
+            Math.abs(other / n - square / n) <= distance && Math.abs(other % n - square % n) <= distance;
+      if (near) squares.add(square);
+    }
+    return squares;
+  }
+}
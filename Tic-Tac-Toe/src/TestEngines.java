@@ -0,0 +1,106 @@
+import java.util.Random;
+
+public class TestEngines {
+
+  /*
+  ** Test program for the search engines. Searches the same random
+  ** positions in different ways and checks that they agree.
+  */
+
+  public static void main(String[] args) {
+    // Boards as {size, number to win, depth}.
+    int[][] boards = {{3, 3, 9}, {4, 3, 6}, {4, 4, 7}, {5, 4, 4}, {6, 4, 3}};
+    Random random = new Random(7);
+    int bad;
+
+    // Test 1: the minimax search chooses the same move with any number of
+    // threads.
+    bad = 0;
+    for (int[] b : boards) {
+      for (int game = 0; game < 8; game++) {
+        TicTacToe t = position(b, random);
+        PosPlay one = search(new MinimaxEngine(b[0], b[2], 16), t, 1);
+        for (int threads = 2; threads <= 4; threads++) {
+          PosPlay many = search(new MinimaxEngine(b[0], b[2], 16), t, threads);
+          if (!same(one, many)) bad++;
+        }
+      }
+    }
+    if (bad == 0) System.out.println("   Test 1 succeeded");
+    else System.out.println("***Test 1 failed: " + bad + " different moves");
+
+    // Test 2: the negamax search finds the same score as the minimax
+    // search, and its move really is worth that score.
+    bad = 0;
+    for (int[] b : boards) {
+      for (int game = 0; game < 8; game++) {
+        TicTacToe t = position(b, random);
+        PosPlay minimax = search(new MinimaxEngine(b[0], b[2], 16), t, 1);
+        PosPlay negamax = search(new NegamaxEngine(b[0], b[2], 16), t, 1);
+        t.storePlay(negamax.getRow(), negamax.getCol(), 'O');
+        int value = (t.evalBoard() != 1) ? t.evalBoard() : value(t, 'X', 1, b[2], -1, 4);
+        t.storePlay(negamax.getRow(), negamax.getCol(), ' ');
+        if (negamax.getScore() != minimax.getScore() || value != negamax.getScore()) bad++;
+      }
+    }
+    if (bad == 0) System.out.println("   Test 2 succeeded");
+    else System.out.println("***Test 2 failed: " + bad + " different scores");
+  }
+
+  // Makes a random unfinished position with one to five squares played,
+  // the human to have played last.
+  private static TicTacToe position(int[] b, Random random) {
+    int n = b[0];
+    TicTacToe t = new TicTacToe(n, b[1], b[2]);
+    int plays = 1 + 2 * random.nextInt(Math.min(3, (n * n - 2) / 2));
+    char symbol = 'X';
+    while (plays > 0) {
+      int square = random.nextInt(n * n);
+      if (!t.squareIsEmpty(square / n, square % n)) continue;
+      t.storePlay(square / n, square % n, symbol);
+      if (t.evalBoard() != 1) {
+        t.storePlay(square / n, square % n, ' ');
+        continue;
+      }
+      symbol = (symbol == 'X') ? 'O' : 'X';
+      plays--;
+    }
+    return t;
+  }
+
+  // Chooses the computer's move from empty tables.
+  private static PosPlay search(GameEngine engine, TicTacToe t, int threads) {
+    t.sharedTable(16).clear();
+    t.concurrentTable(16).clear();
+    engine.setThreads(threads);
+    return engine.chooseMove(t);
+  }
+
+  // Works out the score of a position by a plain alpha-beta search with no
+  // tables, the computer ('O') trying to raise it.
+  private static int value(TicTacToe t, char symbol, int level, int depth, int alpha, int beta) {
+    int n = t.getBoardSize();
+    int best = (symbol == 'O') ? -1 : 4;
+    for (int square = t.nextEmpty(0); square != -1; square = t.nextEmpty(square + 1)) {
+      t.storePlay(square / n, square % n, symbol);
+      int score;
+      if (t.evalBoard() != 1 || level >= depth) score = t.evalBoard();
+      else score = value(t, (symbol == 'O') ? 'X' : 'O', level + 1, depth, alpha, beta);
+      t.storePlay(square / n, square % n, ' ');
+      if (symbol == 'O') {
+        best = Math.max(best, score);
+        alpha = Math.max(alpha, best);
+      } else {
+        best = Math.min(best, score);
+        beta = Math.min(beta, best);
+      }
+      if (alpha >= beta) break;
+    }
+    return best;
+  }
+
+  // Are the two plays the same square with the same score?
+  private static boolean same(PosPlay a, PosPlay b) {
+    return a.getScore() == b.getScore() && a.getRow() == b.getRow() && a.getCol() == b.getCol();
+  }
+}
@@ -0,0 +1,142 @@
+public class TestSharedTable {
+
+  /*
+  ** Test program for the SharedTranspositionTable class.
+  ** Several threads store into and probe the same table at once. Entries
+  ** may be lost when threads race, but every value that is found must be
+  ** one that some thread really stored for that key.
+  */
+
+  private static final int THREADS = 8;
+  private static final int OPERATIONS = 2000000;
+
+  private static volatile int corrupt;
+
+  public static void main(String[] args) throws InterruptedException {
+    SharedTranspositionTable table = new SharedTranspositionTable(1);
+    int value;
+
+    // Test 1: store a value and find it again.
+    value = expected(42, 0);
+    table.store(key(42), value);
+    if (table.probe(key(42)) != value)
+      System.out.println("***Test 1 failed");
+    else System.out.println("   Test 1 succeeded");
+
+    // Test 2: look for a key that was never stored.
+    if (table.probe(key(43)) != TranspositionTable.MISS)
+      System.out.println("***Test 2 failed");
+    else System.out.println("   Test 2 succeeded");
+
+    // Test 3: an empty slot must not be found under the key 0.
+    table.clear();
+    if (table.probe(0L) != TranspositionTable.MISS)
+      System.out.println("***Test 3 failed");
+    else System.out.println("   Test 3 succeeded");
+
+    // Test 4: storing the same key again replaces its value.
+    table.store(key(42), expected(42, 0));
+    table.store(key(42), expected(42, 1));
+    if (table.probe(key(42)) != expected(42, 1))
+      System.out.println("***Test 4 failed");
+    else System.out.println("   Test 4 succeeded");
+
+    // Test 5: values from an earlier search are kept.
+    table.newSearch();
+    if (table.probe(key(42)) != expected(42, 1))
+      System.out.println("***Test 5 failed");
+    else System.out.println("   Test 5 succeeded");
+
+    // Test 6: many threads storing and probing many keys at once.
+    table.clear();
+    corrupt = 0;
+    race(table, 1 << 18, false);
+    if (corrupt != 0)
+      System.out.println("***Test 6 failed: " + corrupt + " corrupted values");
+    else System.out.println("   Test 6 succeeded");
+
+    // Test 7: many threads fighting over the slots of one bucket.
+    table.clear();
+    corrupt = 0;
+    race(table, 8, true);
+    if (corrupt != 0)
+      System.out.println("***Test 7 failed: " + corrupt + " corrupted values");
+    else System.out.println("   Test 7 succeeded");
+
+    // Test 8: after the threads stop, everything left in the table is whole.
+    boolean pass = true;
+    for (int i = 0; i < 8; ++i) {
+      value = table.probe(key(i) << 32);
+      if (value != TranspositionTable.MISS && !valid(i, value)) pass = false;
+    }
+    if (pass) System.out.println("   Test 8 succeeded");
+    else System.out.println("***Test 8 failed");
+
+    // Test 9: after the search counter wraps around, a full bucket left over
+    // from 256 searches ago is still overwritten before this search's entries.
+    table.clear();
+    for (int i = 0; i < 4; ++i)
+      table.store(key(i) << 32, TranspositionTable.pack(i, 0, 20, TranspositionTable.EXACT));
+    for (int i = 0; i < 256; ++i) table.newSearch();
+    int shallow = TranspositionTable.pack(0, 0, 1, TranspositionTable.EXACT);
+    table.store(key(4) << 32, shallow);
+    table.store(key(5) << 32, shallow);
+    if (table.probe(key(4) << 32) == shallow && table.probe(key(5) << 32) == shallow)
+      System.out.println("   Test 9 succeeded");
+    else System.out.println("***Test 9 failed");
+  }
+
+  // Run the threads, each storing and probing random keys out of the given
+  // number. Colliding keys all have the same low bits, so they share a bucket.
+  private static void race(final SharedTranspositionTable table, final int keys,
+      final boolean colliding) throws InterruptedException {
+    Thread[] threads = new Thread[THREADS];
+    for (int t = 0; t < THREADS; ++t) {
+      final int id = t;
+      threads[t] = new Thread() {
+        public void run() {
+          java.util.Random random = new java.util.Random(id);
+          int bad = 0;
+          for (int op = 0; op < OPERATIONS; ++op) {
+            int i = random.nextInt(keys);
+            long k = colliding ? key(i) << 32 : key(i);
+            if (random.nextBoolean()) table.store(k, expected(i, id));
+            else {
+              int value = table.probe(k);
+              if (value != TranspositionTable.MISS && !valid(i, value)) bad++;
+            }
+          }
+          synchronized (TestSharedTable.class) {
+            corrupt += bad;
+          }
+        }
+      };
+      threads[t].start();
+    }
+    for (int t = 0; t < THREADS; ++t) threads[t].join();
+  }
+
+  // The 64 bit key of the i'th configuration.
+  private static long key(int i) {
+    long z = (i + 1) * 0x9E3779B97F4A7C15L;
+    z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+    z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+    return z ^ (z >>> 31);
+  }
+
+  // The value a thread stores for the i'th configuration. Every field
+  // depends on both, so half of one value and half of another won't match.
+  private static int expected(int i, int thread) {
+    long z = key(i);
+    return TranspositionTable.pack((int) (z & 0x3FFF) + thread,
+        (int) ((z >>> 16) & 0xFF) + thread, (int) ((z >>> 24) & 15) + thread,
+        1 + (((int) (z >>> 32) & 0xFFFF) + thread) % 3);
+  }
+
+  // Is this a value that some thread stores for the i'th configuration?
+  private static boolean valid(int i, int value) {
+    for (int t = 0; t < THREADS; ++t)
+      if (expected(i, t) == value) return true;
+    return false;
+  }
+}
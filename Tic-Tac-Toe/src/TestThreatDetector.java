@@ -0,0 +1,128 @@
+import java.util.ArrayList;
+import java.util.Random;
+
+public class TestThreatDetector {
+
+  /*
+  ** Test program for the ThreatDetector class. The threats it keeps up to
+  ** date as squares are played and taken back are checked against the
+  ** board itself: the squares each player wins by playing are found by
+  ** trying every empty square.
+  */
+
+  public static void main(String[] args) {
+    BitBoard board;
+    ThreatDetector detector;
+
+    // Test 1: two in a row on a 3x3 board is a threat on the third square,
+    // which the other player is forced to block.
+    board = BitBoard.create(3, 3);
+    detector = new ThreatDetector(board);
+    play(board, detector, 0, BitBoard.COMPUTER);
+    play(board, detector, 1, BitBoard.COMPUTER);
+    if (detector.winningSquare(BitBoard.COMPUTER) == 2 && detector.winningSquare(BitBoard.HUMAN) == -1 &&
+        detector.forcedSquare(BitBoard.HUMAN) == 2)
+      System.out.println("   Test 1 succeeded");
+    else System.out.println("***Test 1 failed");
+
+    // Test 2: with two squares on a diagonal that is blocked at both ends,
+    // a play beside them makes two threats at once.
+    board = BitBoard.create(4, 3);
+    detector = new ThreatDetector(board);
+    play(board, detector, 5, BitBoard.COMPUTER);
+    play(board, detector, 10, BitBoard.COMPUTER);
+    play(board, detector, 0, BitBoard.HUMAN);
+    play(board, detector, 15, BitBoard.HUMAN);
+    int square = detector.doubleThreatSquare(BitBoard.COMPUTER);
+    boolean found = square != -1;
+    if (found) play(board, detector, square, BitBoard.COMPUTER);
+    if (found && detector.hasDoubleThreat(BitBoard.COMPUTER) && wins(board, BitBoard.COMPUTER).size() >= 2)
+      System.out.println("   Test 2 succeeded");
+    else System.out.println("***Test 2 failed");
+
+    // Test 3: random plays and take-backs on boards of many sizes always
+    // give the same threats as trying every square, as do copies.
+    int[][] sizes = {{3, 3}, {4, 3}, {4, 4}, {5, 4}, {7, 4}, {9, 5}};
+    Random random = new Random(7);
+    int bad = 0;
+    for (int[] size : sizes) {
+      int n = size[0];
+      for (int game = 0; game < 30; game++) {
+        board = BitBoard.create(n, size[1]);
+        detector = new ThreatDetector(board);
+        ArrayList<Integer> played = new ArrayList<Integer>();
+        for (int step = 0; step < 2 * n * n; step++) {
+          if (!played.isEmpty() && (random.nextInt(3) == 0 || played.size() == n * n)) {
+            int taken = played.remove(random.nextInt(played.size()));
+            detector.remove(taken, board.get(taken));
+            board.clear(taken);
+          } else {
+            int next;
+            do next = random.nextInt(n * n); while (board.get(next) != BitBoard.EMPTY);
+            int player = random.nextInt(2);
+            play(board, detector, next, player);
+            // Only unfinished boards are looked at.
+            if (board.hasWin(player)) {
+              detector.remove(next, player);
+              board.clear(next);
+              continue;
+            }
+            played.add(next);
+          }
+          if (random.nextInt(10) == 0) detector = new ThreatDetector(detector);
+          for (int player = 0; player < 2; player++)
+            if (!agrees(board, detector, player)) bad++;
+        }
+      }
+    }
+    if (bad == 0) System.out.println("   Test 3 succeeded");
+    else System.out.println("***Test 3 failed: " + bad + " wrong answers");
+  }
+
+  // Plays a square on the board and tells the detector.
+  private static void play(BitBoard board, ThreatDetector detector, int square, int player) {
+    board.set(square, player);
+    detector.add(square, player);
+  }
+
+  // Does the detector agree with the board on the player's wins, blocks and
+  // double threats?
+  private static boolean agrees(BitBoard board, ThreatDetector detector, int player) {
+    ArrayList<Integer> mine = wins(board, player);
+    ArrayList<Integer> theirs = wins(board, 1 - player);
+    int winning = detector.winningSquare(player);
+    if (mine.isEmpty() ? winning != -1 : !mine.contains(winning)) return false;
+    if (detector.hasDoubleThreat(player) != (mine.size() >= 2)) return false;
+
+    int forced = detector.forcedSquare(player);
+    if (!mine.isEmpty()) return mine.contains(forced);
+    if (!theirs.isEmpty()) return theirs.contains(forced);
+
+    // Otherwise the forced play, if any, must make two threats, and if
+    // there is none then no play does.
+    if (forced != -1) {
+      board.set(forced, player);
+      boolean two = wins(board, player).size() >= 2;
+      board.clear(forced);
+      return two;
+    }
+    for (int square = board.nextEmpty(0); square != -1; square = board.nextEmpty(square + 1)) {
+      board.set(square, player);
+      boolean two = wins(board, player).size() >= 2;
+      board.clear(square);
+      if (two) return false;
+    }
+    return true;
+  }
+
+  // The empty squares the player wins by playing.
+  private static ArrayList<Integer> wins(BitBoard board, int player) {
+    ArrayList<Integer> squares = new ArrayList<Integer>();
+    for (int square = board.nextEmpty(0); square != -1; square = board.nextEmpty(square + 1)) {
+      board.set(square, player);
+      if (board.hasWin(player)) squares.add(square);
+      board.clear(square);
+    }
+    return squares;
+  }
+}
@@ -0,0 +1,101 @@
+import java.util.ArrayList;
+import java.util.Random;
+
+public class TestWindowEvaluator {
+
+  /*
+  ** Test program for the WindowEvaluator class. The score it keeps up to
+  ** date as squares are played and taken back is checked against a score
+  ** worked out from scratch by looking at every window on the board.
+  */
+
+  private static final int[] ROW_STEP = {0, 1, 1, 1};
+  private static final int[] COL_STEP = {1, 0, 1, -1};
+
+  public static void main(String[] args) {
+    BitBoard board;
+    WindowEvaluator evaluator;
+
+    // Test 1: an empty board scores nothing.
+    board = BitBoard.create(3, 3);
+    evaluator = new WindowEvaluator(board);
+    if (evaluator.score() == 0 && bruteScore(board) == 0)
+      System.out.println("   Test 1 succeeded");
+    else System.out.println("***Test 1 failed");
+
+    // Test 2: the centre of a 3x3 board is in four windows, and a human
+    // square in one of them closes it.
+    play(board, evaluator, 4, BitBoard.COMPUTER);
+    boolean centre = evaluator.score() == 4;
+    play(board, evaluator, 0, BitBoard.HUMAN);
+    if (centre && evaluator.score() == 1 && evaluator.score() == bruteScore(board))
+      System.out.println("   Test 2 succeeded");
+    else System.out.println("***Test 2 failed");
+
+    // Test 3: random plays and take-backs on boards of many sizes always
+    // give the same score as counting from scratch, as do copies.
+    int[][] sizes = {{3, 3}, {4, 3}, {5, 4}, {7, 4}, {9, 5}, {12, 5}};
+    Random random = new Random(5);
+    int bad = 0;
+    for (int[] size : sizes) {
+      int n = size[0];
+      for (int game = 0; game < 20; game++) {
+        board = BitBoard.create(n, size[1]);
+        evaluator = new WindowEvaluator(board);
+        ArrayList<Integer> played = new ArrayList<Integer>();
+        for (int step = 0; step < 3 * n * n; step++) {
+          if (!played.isEmpty() && (random.nextInt(3) == 0 || played.size() == n * n)) {
+            int square = played.remove(random.nextInt(played.size()));
+            evaluator.remove(square, board.get(square));
+            board.clear(square);
+          } else {
+            int square;
+            do square = random.nextInt(n * n); while (board.get(square) != BitBoard.EMPTY);
+            play(board, evaluator, square, random.nextInt(2));
+            played.add(square);
+          }
+          if (random.nextInt(10) == 0) evaluator = new WindowEvaluator(evaluator);
+          if (evaluator.score() != bruteScore(board)) bad++;
+        }
+      }
+    }
+    if (bad == 0) System.out.println("   Test 3 succeeded");
+    else System.out.println("***Test 3 failed: " + bad + " wrong scores");
+
+    // Test 4: an evaluator made from a board that is already played on
+    // counts those squares.
+    if (new WindowEvaluator(board).score() == bruteScore(board))
+      System.out.println("   Test 4 succeeded");
+    else System.out.println("***Test 4 failed");
+  }
+
+  // Plays a square on the board and tells the evaluator.
+  private static void play(BitBoard board, WindowEvaluator evaluator, int square, int player) {
+    board.set(square, player);
+    evaluator.add(square, player);
+  }
+
+  // Works out the score by looking at every window on the board.
+  private static int bruteScore(BitBoard board) {
+    int n = board.getSize(), k = board.getWinAmount(), score = 0;
+    for (int row = 0; row < n; row++)
+      for (int col = 0; col < n; col++)
+        for (int d = 0; d < ROW_STEP.length; d++) {
+          int endRow = row + (k - 1) * ROW_STEP[d], endCol = col + (k - 1) * COL_STEP[d];
+          if (endRow < 0 || endRow >= n || endCol < 0 || endCol >= n) continue;
+          int[] count = new int[2];
+          for (int i = 0; i < k; i++) {
+            int player = board.get((row + i * ROW_STEP[d]) * n + col + i * COL_STEP[d]);
+            if (player != BitBoard.EMPTY) count[player]++;
+          }
+          if (count[BitBoard.HUMAN] > 0 && count[BitBoard.COMPUTER] > 0) continue;
+          score += weight(count[BitBoard.COMPUTER]) - weight(count[BitBoard.HUMAN]);
+        }
+    return score;
+  }
+
+  // What an open window with this many of a player's squares is worth.
+  private static int weight(int squares) {
+    return (squares == 0) ? 0 : 1 << Math.min(2 * (squares - 1), 20);
+  }
+}
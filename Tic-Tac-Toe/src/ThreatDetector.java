@@ -0,0 +1,298 @@
+import java.util.Arrays;
+
+/**
+ * Class that finds the plays a player is forced into, without searching. Like
+ * WindowEvaluator it uses Windows to keep how many squares each player has in every
+ * window (run of k squares), and from those it keeps two sets of windows for each
+ * player: the ones the player can win in with one more play (a threat) and the ones it
+ * needs two more plays in. Only the windows through the square played change, so
+ * keeping them up to date takes O(k) for every play.
+ *
+ * From these sets it can tell right away if a player can win, must block, or can make
+ * two threats at once, which the other player can't both block. It can also look for
+ * a win made only of threats (a threat-space search): every play makes a threat, so
+ * the other player's reply is always the block and only a few lines are followed.
+ */
+public class ThreatDetector {
+	//The sets of windows kept for each player.
+	private static final int ONE_TO_GO = 0; //Windows the player wins in with one more play.
+	private static final int TWO_TO_GO = 1; //Windows the player needs two more plays in.
+	//Marks a play that makes threats on two different squares.
+	private static final int DOUBLE = -1;
+
+	private int toWin; //The number of squares in a line needed to win (k).
+	private Windows windows; //Every window and the squares each player has in it.
+	private int[] owners; //The player on each square (BitBoard.EMPTY if nobody).
+
+	//The windows in each set, for each player, and where each window is in them (-1 if not).
+	private int[][][] members;
+	private int[][][] places;
+	private int[][] sizes;
+
+	//Used by the threat-space search, so it never creates an object.
+	private int[] stack; //The plays listed at every step of the search, one step after another.
+	private int[] threatStack; //The square each play in stack makes a threat on.
+	private int top; //Where the next step's plays go in stack.
+	private int[] seen; //The last step each square was listed in, so it is listed once.
+	private int[] where; //Where each square was listed in stack at that step.
+	private int stamp; //The current step.
+
+	/**
+	 * Constructor that finds every window on a board and counts the squares already played.
+	 * @param board The game board.
+	 */
+	public ThreatDetector(BitBoard board){
+		int squares = board.getSquares();
+		windows = new Windows(board);
+		toWin = windows.getWinAmount();
+		int count = windows.count();
+
+		owners = new int[squares];
+		members = new int[2][2][count];
+		places = new int[2][2][count];
+		sizes = new int[2][2];
+		seen = new int[squares];
+		where = new int[squares];
+		stack = new int[squares];
+		threatStack = new int[squares];
+		for (int square = 0; square < squares; square++){
+			owners[square] = BitBoard.EMPTY;
+		}
+		for (int player = 0; player < 2; player++){
+			for (int set = 0; set < 2; set++){
+				Arrays.fill(places[player][set], -1);
+			}
+		}
+
+		//Puts the empty windows in their sets, then counts the squares already played.
+		for (int w = 0; w < count; w++){
+			update(w);
+		}
+		for (int square = 0; square < squares; square++){
+			if (board.get(square) != BitBoard.EMPTY) add(square, board.get(square));
+		}
+	}
+
+	/**
+	 * Constructor that copies another detector, so it can follow a copy of the game.
+	 * @param other The detector to copy.
+	 */
+	public ThreatDetector(ThreatDetector other){
+		toWin = other.toWin;
+		windows = new Windows(other.windows);
+		owners = other.owners.clone();
+		members = new int[2][2][];
+		places = new int[2][2][];
+		sizes = new int[2][2];
+		for (int player = 0; player < 2; player++){
+			for (int set = 0; set < 2; set++){
+				members[player][set] = other.members[player][set].clone();
+				places[player][set] = other.places[player][set].clone();
+				sizes[player][set] = other.sizes[player][set];
+			}
+		}
+		seen = new int[owners.length];
+		where = new int[owners.length];
+		stack = new int[owners.length];
+		threatStack = new int[owners.length];
+	}
+
+	/**
+	 * Counts a play.
+	 * @param square The square that was played.
+	 * @param player BitBoard.HUMAN or BitBoard.COMPUTER.
+	 */
+	public void add(int square, int player){
+		owners[square] = player;
+		windows.add(square, player);
+		for (int w : windows.through(square)){
+			update(w);
+		}
+	}
+
+	/**
+	 * Takes back a play.
+	 * @param square The square that is being emptied.
+	 * @param player The player who had played it.
+	 */
+	public void remove(int square, int player){
+		owners[square] = BitBoard.EMPTY;
+		windows.remove(square, player);
+		for (int w : windows.through(square)){
+			update(w);
+		}
+	}
+
+	/**
+	 * Finds a square the player wins by playing.
+	 * @param player BitBoard.HUMAN or BitBoard.COMPUTER.
+	 * @return The square, or -1 if there isn't one.
+	 */
+	public int winningSquare(int player){
+		if (sizes[player][ONE_TO_GO] == 0) return -1;
+		return windows.emptySquare(members[player][ONE_TO_GO][0]);
+	}
+
+	/**
+	 * Sees if the player has threats on two different squares, so the other player
+	 * can only block one of them.
+	 * @param player BitBoard.HUMAN or BitBoard.COMPUTER.
+	 * @return True if there are two squares the player wins by playing.
+	 */
+	public boolean hasDoubleThreat(int player){
+		int[] threats = members[player][ONE_TO_GO];
+		int first = -1;
+		for (int i = 0; i < sizes[player][ONE_TO_GO]; i++){
+			int square = windows.emptySquare(threats[i]);
+			if (first == -1){
+				first = square;
+			} else if (square != first){
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Finds the play the player is forced into, if there is one. A play that wins
+	 * comes first, then the block of the other player's win (the only play that
+	 * doesn't lose straight away), then a play that makes two threats at once.
+	 * @param player The player about to play.
+	 * @return The square, or -1 if the player is free to play anywhere.
+	 */
+	public int forcedSquare(int player){
+		int square = winningSquare(player);
+		if (square != -1) return square;
+		square = winningSquare(1 - player);
+		if (square != -1) return square;
+		return doubleThreatSquare(player);
+	}
+
+	/**
+	 * Finds a play that makes two threats at once, when the other player has no win
+	 * of their own to play first. The other player can only block one, so it wins.
+	 * @param player The player about to play.
+	 * @return The square, or -1 if there isn't one.
+	 */
+	public int doubleThreatSquare(int player){
+		if (sizes[1 - player][ONE_TO_GO] > 0) return -1;
+		int from = top;
+		int to = threatPlays(player);
+		int found = -1;
+		for (int i = from; i < to && found == -1; i++){
+			if (threatStack[i] == DOUBLE) found = stack[i];
+		}
+		top = from;
+		return found;
+	}
+
+	/**
+	 * Sees if the player about to play can force a win with threats alone. Each play
+	 * must make a threat, so the other player's reply must be the block; a line is
+	 * given up if the block makes a threat for the other player.
+	 * @param player The player about to play.
+	 * @param threats The most threats that are made before the winning play.
+	 * @return True if the player wins by threats.
+	 */
+	public boolean winsByThreats(int player, int threats){
+		if (sizes[player][ONE_TO_GO] > 0) return true;
+		//The other player would win first unless it is blocked, which makes no threat.
+		if (sizes[1 - player][ONE_TO_GO] > 0 || threats == 0) return false;
+
+		//Lists the plays that make a threat before trying any, since trying them
+		//changes the sets. Two threats at once win without trying anything.
+		int from = top;
+		int to = threatPlays(player);
+		boolean found = false;
+		for (int i = from; i < to && !found; i++){
+			found = threatStack[i] == DOUBLE;
+		}
+
+		//Otherwise the other player must block the one threat, and the search goes on.
+		int opponent = 1 - player;
+		for (int i = from; i < to && !found && threats > 1; i++){
+			int square = stack[i];
+			int block = threatStack[i];
+			add(square, player);
+			add(block, opponent);
+			found = winsByThreats(player, threats - 1);
+			remove(block, opponent);
+			remove(square, player);
+		}
+		top = from;
+		return found;
+	}
+
+	/**
+	 * Helper method that lists the plays that make a threat, each once, on top of the
+	 * stack. They are the empty squares in the windows the player needs two more
+	 * plays in; a play in one of those makes a threat on the window's other empty
+	 * square. Next to each play, threatStack holds that square, or DOUBLE if the play
+	 * makes threats on two different squares.
+	 * @param player The player.
+	 * @return Where the list ends in the stack (it starts at top, which is moved past it).
+	 */
+	private int threatPlays(int player){
+		//There are never more plays than squares.
+		if (top + owners.length > stack.length){
+			int length = Math.max(stack.length * 2, top + owners.length);
+			stack = Arrays.copyOf(stack, length);
+			threatStack = Arrays.copyOf(threatStack, length);
+		}
+
+		int[] list = members[player][TWO_TO_GO];
+		int mark = ++stamp;
+		for (int i = 0; i < sizes[player][TWO_TO_GO]; i++){
+			int w = list[i];
+			for (int j = 0; j < toWin; j++){
+				int square = windows.square(w, j);
+				if (owners[square] != BitBoard.EMPTY) continue;
+				int threat = windows.emptySquare(w) - square;
+				if (seen[square] != mark){
+					seen[square] = mark;
+					where[square] = top;
+					stack[top] = square;
+					threatStack[top++] = threat;
+				} else if (threatStack[where[square]] != threat){
+					threatStack[where[square]] = DOUBLE;
+				}
+			}
+		}
+		return top;
+	}
+
+	/**
+	 * Helper method that puts a window in the right sets after its counts changed.
+	 * @param w The window.
+	 */
+	private void update(int w){
+		for (int player = 0; player < 2; player++){
+			boolean open = windows.stones(1 - player, w) == 0;
+			int missing = toWin - windows.stones(player, w);
+			place(player, ONE_TO_GO, w, open && missing == 1);
+			place(player, TWO_TO_GO, w, open && missing == 2);
+		}
+	}
+
+	/**
+	 * Helper method that adds a window to a set or takes it out. A window taken out
+	 * is swapped with the last one, so both take O(1).
+	 * @param player The player the set belongs to.
+	 * @param set ONE_TO_GO or TWO_TO_GO.
+	 * @param w The window.
+	 * @param in True if the window should be in the set.
+	 */
+	private void place(int player, int set, int w, boolean in){
+		int[] list = members[player][set];
+		int[] where = places[player][set];
+		if (in && where[w] == -1){
+			where[w] = sizes[player][set];
+			list[sizes[player][set]++] = w;
+		} else if (!in && where[w] != -1){
+			int last = list[--sizes[player][set]];
+			list[where[w]] = last;
+			where[last] = where[w];
+			where[w] = -1;
+		}
+	}
+}
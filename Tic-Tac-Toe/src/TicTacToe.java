@@ -1,3 +1,5 @@
+import java.util.Random;
+
 /**
  * Class that contains the methods necessary to play Tic-Tac-Toe.
  * Evaluates the game board, maintains the dictionary and
@@ -9,10 +11,21 @@ public class TicTacToe {
 	private int boardSize = 0; //Holds the size of the board (n).
 	private int depth = 0; //The maximum number of levels in the program.
 	private int toWin = 0; //The number of consecutive x's or o's to win (k).
-	private char[][] gameBoard; //The value of the game board.
+	private BitBoard board; //The value of the game board, one set of bits per player.
+	private int status; //The status of the game, kept up to date by every play.
+	private int emptySquares; //The number of squares nobody has played.
+	private int[] playedSquares; //The squares played so far, in order, so plays can be undone.
+	private int[] statusBefore; //The status before each of the plays in playedSquares.
+	private int plays; //The number of plays in playedSquares.
+	private ZobristKeys zobrist; //The random numbers the board is hashed with.
+	private long[] hashes; //The Zobrist hash of each rotation and reflection of the board.
+	private WindowEvaluator evaluator; //Scores unfinished boards (null unless it is used).
+	private ThreatDetector threats; //Finds forced plays (null unless it is used).
+	private CandidateSet candidates; //The squares near played ones (null unless it is used).
 
 	//Constant Definitions.
 	private final int DICT_SIZE = 4001; //Default size of the dictionary.
+	private final int NOT_FOUND = -1; //Value returned when a configuration hasn't been stored.
 	private final int DRAW = 2; //Value assigned to a draw move.
 	private final int UNDECIDED = 1; //Value assigned to an undecided move.
 	private final int COMPUTER_WINS = 3; //Value assigned to a computer win.
@@ -32,14 +45,33 @@ public class TicTacToe {
 		this.depth = max_levels;
 		
 		//Next creates an empty game board of size NxN.
-		gameBoard = new char[boardSize][boardSize];
-		for (int i = 0; i < boardSize; i++){
-			for (int j = 0; j < boardSize; j++){
-				gameBoard[i][j] = ' ';
-			}
-		}
+		resetBoard();
 	}
-	
+
+	/**
+	 * Constructor that copies another game, so it can be searched on another thread.
+	 * The plays made on the copy don't change the original.
+	 * @param other The game to copy.
+	 */
+	public TicTacToe(TicTacToe other){
+		this.boardSize = other.boardSize;
+		this.toWin = other.toWin;
+		this.depth = other.depth;
+		this.board = other.board.copy();
+		this.status = other.status;
+		this.emptySquares = other.emptySquares;
+		this.playedSquares = other.playedSquares.clone();
+		this.statusBefore = other.statusBefore.clone();
+		this.plays = other.plays;
+
+		//The random numbers never change, so they can be shared.
+		this.zobrist = other.zobrist;
+		this.hashes = other.hashes.clone();
+		if (other.evaluator != null) this.evaluator = new WindowEvaluator(other.evaluator);
+		if (other.threats != null) this.threats = new ThreatDetector(other.threats);
+		if (other.candidates != null) this.candidates = new CandidateSet(other.candidates);
+	}
+
 	/**
 	 * Gets the size of the board (n).
 	 * @return The size of the board (n).
@@ -63,11 +95,12 @@ public class TicTacToe {
 	}
 	
 	/**
-	 * Sets the size of the board (n).
+	 * Sets the size of the board (n). The board is cleared.
 	 * @param size The new size of the board (n).
 	 */
 	public void setBoardSize(int size){
 		this.boardSize = size;
+		resetBoard();
 	}
 	/**
 	 * Sets the number of consecutive x's and o's needed to win (k).
@@ -75,6 +108,11 @@ public class TicTacToe {
 	 */
 	public void setWinAmount(int win){
 		this.toWin = win;
+		board.setWinAmount(win);
+		rescan();
+		if (evaluator != null) evaluator = new WindowEvaluator(board);
+		if (threats != null) threats = new ThreatDetector(board);
+		if (candidates != null) candidates = new CandidateSet(board, CandidateSet.DISTANCE);
 	}
 	/**
 	 * Sets the depth of the game tree.
@@ -92,7 +130,7 @@ public class TicTacToe {
 	 */
 	public boolean squareIsEmpty(int row, int col){
 		//Looks at the desired square on the board.
-		if (gameBoard[row][col] == ' '){
+		if (board.get(row * boardSize + col) == BitBoard.EMPTY){
 			//Empty.
 			return true;
 		}
@@ -102,13 +140,59 @@ public class TicTacToe {
 	}
 
 	/**
-	 * Stores either an X or O in a desired square on the board.
+	 * Stores either an X or O in a desired square on the board. Only the four lines
+	 * through the square are looked at to update the status of the game, so this
+	 * takes O(k). Storing a space undoes a play; undoing the latest play restores
+	 * the status it replaced, while undoing an older one rescans the board.
 	 * @param row The row of the desired square.
 	 * @param col The column of the desired square.
-	 * @param symbol Either an X or an O.
+	 * @param symbol Either an X or an O (or a space to empty the square).
 	 */
 	public void storePlay(int row, int col, char symbol){
-		gameBoard[row][col] = symbol;
+		int square = row * boardSize + col;
+		
+		//Empties the square first if it has already been played.
+		int owner = board.get(square);
+		if (owner != BitBoard.EMPTY){
+			board.clear(square);
+			toggleHash(owner, square);
+			if (evaluator != null) evaluator.remove(square, owner);
+			if (threats != null) threats.remove(square, owner);
+			if (candidates != null) candidates.remove(square);
+			emptySquares++;
+			if (plays > 0 && playedSquares[plays - 1] == square){
+				//Undoing the latest play, so the old status is still right.
+				status = statusBefore[--plays];
+			} else {
+				//The plays after this one may have depended on it.
+				rescan();
+			}
+		}
+		if (symbol == ' '){
+			return;
+		}
+		
+		//Records the play so it can be undone.
+		int player = player(symbol);
+		board.set(square, player);
+		toggleHash(player, square);
+		if (evaluator != null) evaluator.add(square, player);
+		if (threats != null) threats.add(square, player);
+		if (candidates != null) candidates.add(square);
+		emptySquares--;
+		playedSquares[plays] = square;
+		statusBefore[plays++] = status;
+		
+		//Only the lines through this square can have just been completed.
+		if (board.winsThrough(square, player)){
+			if (player == BitBoard.HUMAN){
+				status = HUMAN_WINS;
+			} else if (status != HUMAN_WINS){
+				status = COMPUTER_WINS;
+			}
+		} else if (emptySquares == 0 && status == UNDECIDED){
+			status = DRAW;
+		}
 	}
 
 	/**
@@ -118,10 +202,10 @@ public class TicTacToe {
 	 */
 	public boolean wins(char symbol){
 		//Sees if either the human or computer has won.
-		if (symbol == 'X' && evalBoard() == HUMAN_WINS){
+		if (symbol == 'X' && status == HUMAN_WINS){
 			//The human player has won.
 			return true;
-		} else if (symbol == 'O' && evalBoard() == COMPUTER_WINS){
+		} else if (symbol == 'O' && status == COMPUTER_WINS){
 			//The computer has won.
 			return true;
 		}
@@ -136,205 +220,295 @@ public class TicTacToe {
 	 * @return A boolean indicating if the game has been tied.
 	 */
 	public boolean isDraw(){
-		//Calls the evalBoard method and stores the result.
-		int result = evalBoard();
-		
-		//Looks to see if a draw was found.
-		if (result == DRAW){
-			return true;
-		}
-		
-		//Since no draw was found, returns false.
-		return false;
+		//The status is kept up to date by storePlay.
+		return status == DRAW;
 	}
 
 	/**
 	 * Evaluates the current situation on the board
 	 * and sees if the human/computer have won, if the
 	 * game is a draw or if the game is still ongoing.
+	 * The status is kept up to date by storePlay so no squares are looked at.
 	 * @return An integer indicating the status of the game.
 	 */
 	public int evalBoard() {
-		String winStringPlayer = "";
-		String winStringComp = "";
+		return status;
+	}
 
-		//Sets up two strings, each with the number of consecutive X's or O's needed to win.
-		for (int i = 1; i <= toWin; i++){
-			winStringPlayer = winStringPlayer + 'X';
-			winStringComp = winStringComp + 'O';
+	/**
+	 * Evaluates the board on a finer scale, so a search can tell unfinished boards
+	 * apart. Every status is multiplied by the scale, and an unfinished board is moved
+	 * up or down from UNDECIDED by the open windows each player has (see
+	 * WindowEvaluator), but by less than the scale. So a human win still scores lowest,
+	 * then every unfinished board, then a draw, then a computer win. Takes O(1), since
+	 * the windows are kept up to date by storePlay.
+	 * @param scale How much finer the scores are (1 gives the same scores as evalBoard()).
+	 * @return An integer indicating the status of the game.
+	 */
+	public int evalBoard(int scale) {
+		if (status != UNDECIDED || scale == 1 || evaluator == null){
+			return status * scale;
 		}
-		
-		//Now performs checks.
-		//First, looks to see if player/computer won horizontally.
-		if (horizontalCheck(winStringPlayer)){
-			return HUMAN_WINS;
-		} else if (horizontalCheck(winStringComp)){
-			return COMPUTER_WINS;
+		int windows = Math.max(1 - scale, Math.min(evaluator.score(), scale - 1));
+		return UNDECIDED * scale + windows;
+	}
+
+	/**
+	 * Starts or stops keeping count of the open windows used by evalBoard(int). They
+	 * take O(k) to update on every play, so they are only kept if they are used.
+	 * @param on True to keep count of the windows.
+	 */
+	public void useHeuristic(boolean on){
+		if (!on){
+			evaluator = null;
+		} else if (evaluator == null){
+			evaluator = new WindowEvaluator(board);
 		}
-		
-		//Now sees if the player/computer won vertically.
-		if (verticalCheck(winStringPlayer)){
-			return HUMAN_WINS;
-		} else if (verticalCheck(winStringComp)){
-			return COMPUTER_WINS;
+	}
+
+	/**
+	 * Starts or stops keeping track of the threats used by forcedPlay and threatStatus.
+	 * Like the open windows, they take O(k) to update on every play.
+	 * @param on True to keep track of the threats.
+	 */
+	public void useThreats(boolean on){
+		if (!on){
+			threats = null;
+		} else if (threats == null){
+			threats = new ThreatDetector(board);
 		}
-		
-		//Lastly, checks if the player/computer won diagonally.
-		if (diagonalCheck(winStringPlayer)){
-			return HUMAN_WINS;
-		} else if (diagonalCheck(winStringComp)){
-			return COMPUTER_WINS;
+	}
+
+	/**
+	 * Starts or stops keeping the squares near played ones, so nextCandidate only
+	 * lists those. They take O(d^2) to update on every play.
+	 * @param on True to keep the squares near played ones.
+	 */
+	public void useCandidates(boolean on){
+		if (!on){
+			candidates = null;
+		} else if (candidates == null){
+			candidates = new CandidateSet(board, CandidateSet.DISTANCE);
 		}
-		
-		//Finally, if this all fails, checks to see if the game is tied.
-		if (boardFull()){
-			return DRAW;
+	}
+
+	/**
+	 * Finds the play a player is forced into, without searching: a play that wins,
+	 * else the block of the other player's win, else a play that makes two threats
+	 * the other player can't both block.
+	 * @param symbol The player about to play, either an X or an O.
+	 * @return The square (row * n + column), or -1 if there is no forced play or
+	 * threats aren't kept track of.
+	 */
+	public int forcedPlay(char symbol){
+		return (threats == null) ? NOT_FOUND : threats.forcedSquare(player(symbol));
+	}
+
+	/**
+	 * Sees if an unfinished game is certain to be won, by looking only at threats.
+	 * The player about to play wins if they can win by making threats alone (see
+	 * ThreatDetector.winsByThreats); otherwise the other player wins if they already
+	 * have two threats.
+	 * @param symbol The player about to play, either an X or an O.
+	 * @param plays The most threats the player about to play may make before winning.
+	 * @return The status the game is certain to end with, or UNDECIDED if it isn't
+	 * certain (or threats aren't kept track of).
+	 */
+	public int threatStatus(char symbol, int plays){
+		int own = player(symbol);
+		if (threats == null){
+			return UNDECIDED;
+		} else if (threats.winsByThreats(own, plays)){
+			return (own == BitBoard.HUMAN) ? HUMAN_WINS : COMPUTER_WINS;
+		} else if (threats.hasDoubleThreat(1 - own)){
+			return (own == BitBoard.HUMAN) ? COMPUTER_WINS : HUMAN_WINS;
 		}
-		
-		//After all these checks, if nothing was triggered, the game is still ongoing.
 		return UNDECIDED;
 	}
 	
 	/**
-	 * Helper method that checks to see whether a certain player has
-	 * won diagonally.
-	 * @param winString The number of consecutive X's or O's needed to win the game.
-	 * @return A boolean indicating whether or not that player has won diagonally.
-	 */
-	private boolean diagonalCheck(String winString){
-		//Creates 4 empty strings that hold the board's diagonal setup.
-		String boardDia = "";
-		String boardDia2 = "";
-		String boardDia3 = "";
-		String boardDia4 = "";
-		
-		/*
-		 * These integers determine which of the squares on the
-		 * board are inserted into each boardDia string.
-		 */
-		int j = 0;
-		int k = 0; 
-		int l = boardSize - 1;
-		int m = 0;
-		
-		//Loops through the board.
-		while (j < boardSize){
-			//Resets variables k and m to the values of j and l.
-			k = j;
-			m = l;
-			//Loops through the diagonal positions of the board.
-			for (int i = 0; k < boardSize; i++){
-				//Adds the current square into each of the four boardDia variables.
-				boardDia = boardDia + gameBoard[k][i];
-				boardDia2 = boardDia2 + gameBoard[i][k];
-				boardDia3 = boardDia3 + gameBoard[i][m];
-				boardDia4 = boardDia4 + gameBoard[k][(boardSize - 1) - i];
-				//Increments k and decrements m so that the next proper square on the board can be represented.
-				k++;
-				m--;
-			}
-			
-			//Now sees if any of these current strings contains the winString.
-			if ((boardDia.contains(winString)) || (boardDia2.contains(winString)) || 
-					(boardDia3.contains(winString)) || (boardDia4.contains(winString))){
-				//The player has won diagonally.
-				return true;
-			}
-			
-			//Increments j and decrements l.
-			j++;
-			l--;
-			
-			//Resets all of the boardDia strings.
-			boardDia="";
-			boardDia2="";
-			boardDia3="";
-			boardDia4="";
+	 * Helper method that creates an empty board and resets the status of the game.
+	 */
+	private void resetBoard(){
+		board = BitBoard.create(boardSize, toWin);
+		status = UNDECIDED;
+		emptySquares = board.getSquares();
+		playedSquares = new int[emptySquares];
+		statusBefore = new int[emptySquares];
+		plays = 0;
+		zobrist = new ZobristKeys(boardSize);
+		hashes = new long[ZobristKeys.SYMMETRIES];
+		if (evaluator != null) evaluator = new WindowEvaluator(board);
+		if (threats != null) threats = new ThreatDetector(board);
+		if (candidates != null) candidates = new CandidateSet(board, CandidateSet.DISTANCE);
+	}
+	
+	/**
+	 * Helper method that works out the status of the game from the whole board.
+	 * Only needed when a play is undone out of order, since the plays after it can
+	 * no longer be undone by restoring their old status.
+	 */
+	private void rescan(){
+		//Shifts each player's bits along every direction to look for k in a row.
+		if (board.hasWin(BitBoard.HUMAN)){
+			status = HUMAN_WINS;
+		} else if (board.hasWin(BitBoard.COMPUTER)){
+			status = COMPUTER_WINS;
+		} else if (board.isFull()){
+			status = DRAW;
+		} else {
+			status = UNDECIDED;
 		}
 		
-		//Since nothing was triggered, this player did not win diagonally.
-		return false;
+		//The plays that are left are forgotten, so undoing them rescans as well.
+		plays = 0;
+	}
+	
+	/**
+	 * Finds the first empty square at or after a square, going row by row. Lets the
+	 * empty squares be listed without looking at the full ones.
+	 * @param from The square to start looking from (row * n + column).
+	 * @return The empty square (row * n + column), or -1 if there are none left.
+	 */
+	public int nextEmpty(int from){
+		return board.nextEmpty(from);
 	}
 
 	/**
-	 * Helper method that determines whether or not the board is full.
-	 * @return A boolean indicating whether or not there are empty spaces.
-	 */
-	private boolean boardFull(){
-		//Loops through all the rows of the board.
-		for (int i = 0; i < boardSize; i++){
-			//Loops through all the columns of the board.
-			for (int j = 0; j < boardSize; j++){
-				//Sees if an empty space was found at the current position.
-				if (gameBoard[i][j] == ' '){
-					return false;
-				}
+	 * Finds the first square worth searching at or after a square, going row by row:
+	 * an empty square near a played one (see CandidateSet) if those are kept, and any
+	 * empty square if not.
+	 * @param from The square to start looking from (row * n + column).
+	 * @return The square (row * n + column), or -1 if there are none left.
+	 */
+	public int nextCandidate(int from){
+		return (candidates == null) ? board.nextEmpty(from) : candidates.next(from);
+	}
+
+	/**
+	 * Plays the game out to the end with random plays and takes them back, so the
+	 * board is left as it was. Used by MctsEngine to score a board by how its random
+	 * games end. The plays only go on the bitboard, with no hashes, windows or threats
+	 * to update, and only the lines through each square played are checked for a win.
+	 * @param symbol The player about to play, either an X or an O.
+	 * @param random The random numbers to choose the plays with.
+	 * @param squares A buffer for the empty squares, at least n * n long.
+	 * @return The status the game ended with (or had already ended with).
+	 */
+	public int randomPlayout(char symbol, Random random, int[] squares){
+		if (status != UNDECIDED) return status;
+		int count = 0;
+		for (int square = board.nextEmpty(0); square != -1; square = board.nextEmpty(square + 1)){
+			squares[count++] = square;
+		}
+
+		//Moves each play to the front of the buffer, so the ones left are still empty.
+		int player = player(symbol);
+		int result = DRAW;
+		int played = 0;
+		while (played < count){
+			int i = played + random.nextInt(count - played);
+			int square = squares[i];
+			squares[i] = squares[played];
+			squares[played++] = square;
+			board.set(square, player);
+			if (board.winsThrough(square, player)){
+				result = (player == BitBoard.HUMAN) ? HUMAN_WINS : COMPUTER_WINS;
+				break;
 			}
+			player = 1 - player;
 		}
-		
-		//If it didn't find a blank space, returns true.
-		return true;
+		for (int i = 0; i < played; i++){
+			board.clear(squares[i]);
+		}
+		return result;
 	}
 	
 	/**
-	 * Helper method that indicates whether or not a player has won horizontally.
-	 * @param winString The number of consecutive x's or o's required to win the game.
-	 * @return A boolean indicating whether or not the player has won horizontally.
+	 * Gives an empty square a rough score for how good it is to play, without searching.
+	 * Squares near the centre lie on more lines, and squares that extend a player's own
+	 * lines or block the opponent's are more likely to matter. Used to decide which
+	 * squares to try first.
+	 * @param square The empty square (row * n + column).
+	 * @param symbol The player about to play, either an X or an O.
+	 * @return The score, between 0 and 255.
 	 */
-	private boolean horizontalCheck(String winString){
-		//Creates an empty string that will hold each row.
-		String boardRow = "";
+	public int squareScore(int square, char symbol){
+		int own = player(symbol);
+		int row = square / boardSize;
+		int col = square % boardSize;
 		
-		//Loops through each row.
-		for (int i = 0; i < boardSize; i++){
-			//Loops through each column in each row.
-			for (int j = 0; j < boardSize; j++){
-				//Stores the current square in a string with the other squares in that row.
-				boardRow = boardRow + gameBoard[i][j];
-			}
-			
-			//Checks to see if that current row contains the win string.
-			if (boardRow.contains(winString)){
-				//It does.
-				return true;
+		//Closeness to the centre of the board.
+		int score = boardSize - (Math.abs(2 * row - boardSize + 1) + Math.abs(2 * col - boardSize + 1)) / 2;
+		
+		//Lines through the square that it would extend or block.
+		for (int d = 0; d < BitBoard.directions(); d++){
+			int mine = board.runThrough(square, own, d);
+			int theirs = board.runThrough(square, 1 - own, d);
+			score += mine * mine + theirs * theirs;
+			if (mine >= toWin - 1){
+				//Playing here wins.
+				score += 128;
+			} else if (theirs >= toWin - 1){
+				//Playing here stops the opponent winning.
+				score += 64;
 			}
-			
-			//If not, resets the row string and checks the next row.
-			boardRow = "";
 		}
-		
-		//Nothing was triggered so the player did not win horizontally.
-		return false;
+		return Math.max(0, Math.min(score, 255));
 	}
-	
+
 	/**
-	 * Helper method that indicates whether or not a player has won vertically.
-	 * @param winString The number of consecutive x's or or's required to win the game.
-	 * @return A boolean indicating whether or not a player has won vertically.
+	 * Lists the plays worth trying, best first: only the forced play if there is one
+	 * (see forcedPlay), otherwise the empty squares sorted by squareScore. Squares with
+	 * the same score stay in row by row order.
+	 * @param symbol The player about to play, either an X or an O.
+	 * @param nearOnly True to list only the candidates (see nextCandidate), false for
+	 * every empty square.
+	 * @return The squares (row * n + column).
 	 */
-	private boolean verticalCheck(String winString){		
-		//Sets up a string that will store the contents of each column.
-		String boardCol = "";
-		
-		//Loops through each column.
-		for (int i = 0; i < boardSize; i++){
-			//Loops through each row.
-			for (int j = 0; j < boardSize; j++){
-				//Stores the current square in a string with other squares from that column.
-				boardCol = boardCol + gameBoard[j][i];
-			}
-			
-			//Sees if the player has won in that column.
-			if (boardCol.contains(winString)){
-				return true;
+	public int[] sortedPlays(char symbol, boolean nearOnly){
+		int forced = forcedPlay(symbol);
+		if (forced != NOT_FOUND) return new int[] {forced};
+
+		int count = 0;
+		for (int square = next(0, nearOnly); square != -1; square = next(square + 1, nearOnly)){
+			count++;
+		}
+		int[] squares = new int[count];
+		int[] scores = new int[count];
+		count = 0;
+		for (int square = next(0, nearOnly); square != -1; square = next(square + 1, nearOnly)){
+			//Inserts it into the sorted part, after any square with the same score.
+			int score = squareScore(square, symbol);
+			int i = count++;
+			while (i > 0 && scores[i - 1] < score){
+				squares[i] = squares[i - 1];
+				scores[i] = scores[i - 1];
+				i--;
 			}
-			
-			//Now resets the column string.
-			boardCol = "";
+			squares[i] = square;
+			scores[i] = score;
 		}
-		
-		//Nothing was triggered so the player did not win vertically.
-		return false;
+		return squares;
+	}
+
+	/**
+	 * Helper method that finds the next candidate or the next empty square.
+	 * @param from The square to start looking from (row * n + column).
+	 * @param nearOnly True for the next candidate, false for the next empty square.
+	 * @return The square (row * n + column), or -1 if there are none left.
+	 */
+	private int next(int from, boolean nearOnly){
+		return nearOnly ? nextCandidate(from) : board.nextEmpty(from);
+	}
+	
+	/**
+	 * Helper method that converts an X or an O to the player number used by the board.
+	 * @param symbol Either an X or an O.
+	 * @return The player number.
+	 */
+	private static int player(char symbol){
+		return (symbol == 'X') ? BitBoard.HUMAN : BitBoard.COMPUTER;
 	}
 	
 	/**
@@ -348,24 +522,19 @@ public class TicTacToe {
 	}
 
 	/**
-	 * Helper method that converts the array gameBoard to a string.
+	 * Helper method that converts the game board to a string.
 	 * @return The string containing the current game board.
 	 */
 	private String gameConfig(){
-		//Creates an empty string to hold the board.
-		String gameBoardConfig = "";
-		
-		//First, loops through all the rows.
-		for (int row = 0; row < boardSize; row++){
-			//Loops through all the columns.
-			for (int col = 0; col < boardSize; col++){
-				//Stores all the squares in the config string.
-				gameBoardConfig = gameBoardConfig + gameBoard[row][col]; 
-			}
+		//Fills one character per square, row by row.
+		char[] gameBoardConfig = new char[boardSize * boardSize];
+		for (int square = 0; square < gameBoardConfig.length; square++){
+			int owner = board.get(square);
+			gameBoardConfig[square] = (owner == BitBoard.HUMAN) ? 'X' : (owner == BitBoard.COMPUTER) ? 'O' : ' ';
 		}
 		
 		//Returns the config of the current game board.
-		return gameBoardConfig;
+		return new String(gameBoardConfig);
 	}
 	
 	/**
@@ -403,4 +572,172 @@ public class TicTacToe {
 			System.out.println(e);
 		}
 	}
+
+	/**
+	 * Gets the Zobrist hash of the current game board.
+	 * @return The 64 bit hash of the board.
+	 */
+	public long getHash(){
+		return hashes[0];
+	}
+	
+	/**
+	 * Gets the number the current game board is found under in a tablebase. Each
+	 * square is a digit in base 3, the first square the lowest: 0 if it is empty, 1
+	 * for an X and 2 for an O. Only fits in a long for boards of up to 39 squares.
+	 * @return The board's base 3 number.
+	 */
+	public long tablebaseIndex(){
+		long index = 0;
+		for (int square = board.getSquares() - 1; square >= 0; square--){
+			index = index * 3 + board.get(square) + 1;
+		}
+		return index;
+	}
+
+	/**
+	 * Gets the key the current game board is stored under in a transposition table.
+	 * It is the smallest hash of the eight rotations and reflections of the board, so
+	 * all eight versions of the board share one entry.
+	 * @return The 64 bit key of the board.
+	 */
+	public long getKey(){
+		return hashes[canonical()];
+	}
+	
+	/**
+	 * Helper method that adds or removes a play from the hash of every rotation and
+	 * reflection of the board. XOR undoes itself, so the same call does both.
+	 * @param player The player whose play it is.
+	 * @param square The square that was played.
+	 */
+	private void toggleHash(int player, int square){
+		for (int s = 0; s < hashes.length; s++){
+			hashes[s] ^= zobrist.key(s, player, square);
+		}
+	}
+	
+	/**
+	 * Helper method that finds the rotation or reflection with the smallest hash.
+	 * The configuration is stored in the table as if it were that version of the board.
+	 * @return The rotation or reflection.
+	 */
+	private int canonical(){
+		int best = 0;
+		for (int s = 1; s < hashes.length; s++){
+			if (hashes[s] < hashes[best]) best = s;
+		}
+		return best;
+	}
+	
+	/**
+	 * Creates a new, empty transposition table. Unlike a dictionary, it is keyed by
+	 * the hash of the board, so no strings are built while searching.
+	 * @param megabytes The size of the table in megabytes.
+	 * @return The new table that was created.
+	 */
+	public TranspositionTable createTable(int megabytes){
+		return new TranspositionTable(megabytes);
+	}
+	
+	/**
+	 * Gets the transposition table kept for this board size and number to win. The
+	 * same table is returned for every game on the same board, so what was learned
+	 * while choosing one move is still there for the next.
+	 * @param megabytes The size of the table in megabytes.
+	 * @return The table for this board.
+	 */
+	public TranspositionTable sharedTable(int megabytes){
+		return TranspositionTable.shared(tableName(), megabytes);
+	}
+
+	/**
+	 * Gets the transposition table kept for this board size and number to win that
+	 * several threads can search with at once.
+	 * @param megabytes The size of the table in megabytes.
+	 * @return The table for this board.
+	 */
+	public SharedTranspositionTable concurrentTable(int megabytes){
+		return SharedTranspositionTable.shared(tableName(), megabytes);
+	}
+
+	/**
+	 * Helper method that names the kind of scores kept for this board. Scores are only
+	 * shared between games on the same size of board, with the same number to win,
+	 * that are scored the same way.
+	 * @return The name of the board's table.
+	 */
+	private String tableName(){
+		return boardSize + "," + toWin + ((evaluator == null) ? "" : ",windows")
+				+ ((threats == null) ? "" : ",threats");
+	}
+
+	/**
+	 * Sees if the score of the current configuration is already known from a transposition
+	 * table. A stored score is only used if the configuration was searched at least as
+	 * deeply as is needed now, and a score from an alpha/beta cut is only used if it
+	 * would cause the same cut again.
+	 * @param configurations The table of configurations that will be checked.
+	 * @param levels The number of levels that still need to be searched.
+	 * @param highest_score The highest score the computer is already sure of (alpha).
+	 * @param lowest_score The lowest score the human is already sure of (beta).
+	 * @return The score associated with the current config (or -1 if it can't be used).
+	 */
+	public int repeatedConfig(TranspositionTableADT configurations, int levels, int highest_score, int lowest_score){
+		//Looks up the board by its hash, which is the same for every rotation and reflection.
+		int value = configurations.probe(getKey());
+		if (!TranspositionTable.usable(value, searchDepth(levels), highest_score, lowest_score)){
+			return NOT_FOUND;
+		}
+		return TranspositionTable.score(value);
+	}
+	
+	/**
+	 * Gets the best play stored for the current configuration, turned back from the
+	 * rotation or reflection it was stored as to the way the board really is.
+	 * @param configurations The table of configurations that will be checked.
+	 * @return The best square (row * n + column), or -1 if none is stored.
+	 */
+	public int storedPlay(TranspositionTableADT configurations){
+		int symmetry = canonical();
+		int value = configurations.probe(hashes[symmetry]);
+		int move = (value == TranspositionTable.MISS) ? TranspositionTable.NO_MOVE : TranspositionTable.move(value);
+		if (move == TranspositionTable.NO_MOVE){
+			return NOT_FOUND;
+		}
+		return zobrist.unmap(symmetry, move);
+	}
+	
+	/**
+	 * Method that stores the current configuration in a transposition table along with
+	 * the reply found for it, how deeply it was searched and the alpha/beta window the
+	 * search was given.
+	 * @param configurations The table that holds all the configurations.
+	 * @param reply The score and best play found for the current configuration.
+	 * @param levels The number of levels that were searched.
+	 * @param highest_score The highest score the computer was sure of (alpha).
+	 * @param lowest_score The lowest score the human was sure of (beta).
+	 */
+	public void insertConfig(TranspositionTableADT configurations, PosPlay reply, int levels,
+			int highest_score, int lowest_score){
+		int score = reply.getScore();
+		int symmetry = canonical();
+		
+		//The best play is stored as it would be on the rotated or reflected board.
+		int move = (reply.getRow() < 0) ? TranspositionTable.NO_MOVE
+				: zobrist.map(symmetry, reply.getRow() * boardSize + reply.getCol());
+		int bound = TranspositionTable.boundOf(score, highest_score, lowest_score);
+		configurations.store(hashes[symmetry], TranspositionTable.pack(score, move, searchDepth(levels), bound));
+	}
+	
+	/**
+	 * Helper method that works out how deep a search really goes. The game ends once
+	 * every square is played, so searching more levels than there are empty squares
+	 * gives the same result.
+	 * @param levels The number of levels asked for.
+	 * @return The number of levels that make a difference.
+	 */
+	private int searchDepth(int levels){
+		return Math.min(levels, emptySquares);
+	}
 }
@@ -0,0 +1,272 @@
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Class that stores the scores of board configurations that have already been
+ * searched. Unlike the Dictionary, it is keyed by a board's 64 bit Zobrist hash and
+ * kept in two flat arrays, one of keys and one of packed values, so finding or
+ * storing a configuration never creates an object. The table has a fixed size and
+ * is split into buckets of a few slots. Every slot remembers which search stored it,
+ * so one table can be kept for a whole game (and for later games on the same board):
+ * when a bucket is full, slots left over from earlier searches are overwritten first,
+ * and then the slot that was searched least deeply.
+ *
+ * Each value packs the score (bits 0-15), the best move plus one (bits 16-24), the
+ * number of levels that were searched below the configuration (bits 25-29) and
+ * whether the score is exact or only a bound from an alpha/beta cut (bits 30-31).
+ */
+public class TranspositionTable implements TranspositionTableADT {
+	//Returned when a configuration is not in the table.
+	public static final int MISS = -1;
+	//Stored in place of a move when there isn't one.
+	public static final int NO_MOVE = -1;
+	//The largest depth that can be stored.
+	public static final int MAX_DEPTH = 31;
+
+	//What the stored score means.
+	public static final int EXACT = 1; //The score is the configuration's real score.
+	public static final int LOWER = 2; //The real score is at least the stored score.
+	public static final int UPPER = 3; //The real score is at most the stored score.
+
+	//The number of slots looked at for each key.
+	private static final int BUCKET_SIZE = 4;
+	//The number of bytes each slot takes (a long key, an int value and a byte generation).
+	private static final int SLOT_BYTES = 13;
+	//The largest move that can be packed (9 bits, with one value kept back for MISS).
+	private static final int MAX_MOVE = 509;
+	//The generation given to every slot when the counter wraps around. No search uses it.
+	private static final byte OLD = 0;
+
+	private long[] keys; //The hash of the configuration in each slot.
+	private int[] values; //The packed value in each slot (MISS if empty).
+	private byte[] generations; //The search that stored each slot.
+	private byte generation = 1; //The current search (never OLD).
+	private int mask; //Used to turn a hash into a slot number.
+
+	//The tables kept between games, keyed by board size and number to win.
+	private static HashMap<String, TranspositionTable> shared = new HashMap<String, TranspositionTable>();
+
+	/**
+	 * Constructor that creates an empty table that uses about the given memory.
+	 * @param megabytes The size of the table in megabytes.
+	 */
+	public TranspositionTable(int megabytes){
+		int slots = slotsFor(megabytes);
+		keys = new long[slots];
+		values = new int[slots];
+		generations = new byte[slots];
+		mask = slots - 1;
+		clear();
+	}
+
+	/**
+	 * Gets the table kept for a board size and number to win, creating it the first
+	 * time. The scores in a table only make sense for one size and number to win,
+	 * but for those they stay right from one move, and one game, to the next.
+	 * @param name The board size, number to win and anything else that changes the scores.
+	 * @param megabytes The size of the table in megabytes.
+	 * @return The table for that board.
+	 */
+	public static synchronized TranspositionTable shared(String name, int megabytes){
+		TranspositionTable table = shared.get(name);
+
+		//Creates the table if there isn't one, or if the one there is the wrong size.
+		if (table == null || table.capacity() != slotsFor(megabytes)){
+			table = new TranspositionTable(megabytes);
+			shared.put(name, table);
+		}
+		return table;
+	}
+
+	/**
+	 * Helper method that works out how many slots fit in the given memory. Uses the
+	 * largest power of two that fits, so a hash can be turned into a slot with a mask.
+	 * @param megabytes The size of the table in megabytes.
+	 * @return The number of slots.
+	 */
+	private static int slotsFor(int megabytes){
+		long wanted = Math.max(BUCKET_SIZE, (long) megabytes * 1024 * 1024 / SLOT_BYTES);
+		return Integer.highestOneBit((int) Math.min(wanted, 1 << 30));
+	}
+
+	/**
+	 * Starts a new search. Everything stored before is kept, but is overwritten
+	 * before anything the new search stores. The generation only has 255 values, so
+	 * when it wraps around every slot is marked as old; otherwise a slot stored 255
+	 * searches ago would look as if this search had stored it.
+	 */
+	public void newSearch(){
+		if (++generation == OLD){
+			Arrays.fill(generations, OLD);
+			generation = OLD + 1;
+		}
+	}
+
+	/**
+	 * Empties the table.
+	 */
+	public void clear(){
+		Arrays.fill(values, MISS);
+		Arrays.fill(generations, generation);
+	}
+
+	/**
+	 * Gets the number of slots in the table.
+	 * @return The number of slots.
+	 */
+	public int capacity(){
+		return keys.length;
+	}
+
+	/**
+	 * Finds the value stored for a configuration.
+	 * @param key The hash of the configuration.
+	 * @return The packed value, or MISS if it is not in the table.
+	 */
+	public int probe(long key){
+		int start = (int) key & mask;
+		for (int i = 0; i < BUCKET_SIZE; i++){
+			int slot = (start + i) & mask;
+			if (keys[slot] == key && values[slot] != MISS){
+				//Still useful to this search, so it is no longer the first to go.
+				generations[slot] = generation;
+				return values[slot];
+			}
+		}
+		return MISS;
+	}
+
+	/**
+	 * Stores the value for a configuration. A slot already holding the same
+	 * configuration is reused, then an empty slot; if the bucket is full, a slot from
+	 * an earlier search is overwritten before one from this search, and the one with
+	 * the smallest search depth is picked among those.
+	 * @param key The hash of the configuration.
+	 * @param value The packed value.
+	 */
+	public void store(long key, int value){
+		int start = (int) key & mask;
+		int replace = -1;
+
+		for (int i = 0; i < BUCKET_SIZE; i++){
+			int slot = (start + i) & mask;
+			if (values[slot] == MISS){
+				//Keeps looking in case the configuration is further along.
+				if (replace == -1 || values[replace] != MISS) replace = slot;
+			} else if (keys[slot] == key){
+				values[slot] = value;
+				generations[slot] = generation;
+				return;
+			} else if (replace == -1 || (values[replace] != MISS && worse(slot, replace))){
+				replace = slot;
+			}
+		}
+
+		keys[replace] = key;
+		values[replace] = value;
+		generations[replace] = generation;
+	}
+
+	/**
+	 * Helper method that sees if one full slot should be overwritten before another.
+	 * @param slot The slot being looked at.
+	 * @param other The slot that would be overwritten otherwise.
+	 * @return True if slot is the better one to overwrite.
+	 */
+	private boolean worse(int slot, int other){
+		//Slots left over from earlier searches go first.
+		boolean stale = generations[slot] != generation;
+		boolean otherStale = generations[other] != generation;
+		if (stale != otherStale) return stale;
+
+		//Then the configuration that was searched least deeply.
+		return depth(values[slot]) < depth(values[other]);
+	}
+
+	/**
+	 * Sees if a stored value settles the score of a configuration without searching
+	 * it again. It must have been searched at least as deeply as is needed now, and
+	 * a bound is only good enough if it falls outside the alpha/beta window.
+	 * @param value The packed value (or MISS).
+	 * @param depth The number of levels that still need to be searched.
+	 * @param alpha The score the maximizing player is already sure of.
+	 * @param beta The score the minimizing player is already sure of.
+	 * @return True if the stored score can be used.
+	 */
+	public static boolean usable(int value, int depth, int alpha, int beta){
+		if (value == MISS || depth(value) < Math.min(depth, MAX_DEPTH)) return false;
+
+		int score = score(value);
+		switch (bound(value)){
+		case EXACT:
+			return true;
+		case LOWER:
+			return score >= beta;
+		default:
+			return score <= alpha;
+		}
+	}
+
+	/**
+	 * Works out what a score returned by an alpha/beta search means.
+	 * @param score The score that was returned.
+	 * @param alpha The alpha value the search was given.
+	 * @param beta The beta value the search was given.
+	 * @return EXACT, LOWER or UPPER.
+	 */
+	public static int boundOf(int score, int alpha, int beta){
+		if (score <= alpha) return UPPER;
+		if (score >= beta) return LOWER;
+		return EXACT;
+	}
+
+	/**
+	 * Packs a score, a move, a depth and a bound into a single value.
+	 * @param score The score (must fit in 16 bits).
+	 * @param move The best square (row * n + column), or NO_MOVE.
+	 * @param depth The number of levels searched below the configuration.
+	 * @param bound EXACT, LOWER or UPPER.
+	 * @return The packed value.
+	 */
+	public static int pack(int score, int move, int depth, int bound){
+		if (move > MAX_MOVE) move = NO_MOVE;
+		depth = Math.max(0, Math.min(depth, MAX_DEPTH));
+		return (score & 0xFFFF) | ((move + 1) << 16) | (depth << 25) | (bound << 30);
+	}
+
+	/**
+	 * Gets the score out of a packed value.
+	 * @param value The packed value.
+	 * @return The score.
+	 */
+	public static int score(int value){
+		return (short) value;
+	}
+
+	/**
+	 * Gets the move out of a packed value.
+	 * @param value The packed value.
+	 * @return The best square, or NO_MOVE.
+	 */
+	public static int move(int value){
+		return ((value >>> 16) & 0x1FF) - 1;
+	}
+
+	/**
+	 * Gets the search depth out of a packed value.
+	 * @param value The packed value.
+	 * @return The number of levels searched below the configuration.
+	 */
+	public static int depth(int value){
+		return (value >>> 25) & MAX_DEPTH;
+	}
+
+	/**
+	 * Gets the bound out of a packed value.
+	 * @param value The packed value.
+	 * @return EXACT, LOWER or UPPER.
+	 */
+	public static int bound(int value){
+		return value >>> 30;
+	}
+}
@@ -0,0 +1,37 @@
+/**
+ * Interface for the tables that store the scores of board configurations that have
+ * already been searched. Configurations are keyed by their 64 bit Zobrist hash and
+ * the values are packed by TranspositionTable.pack.
+ */
+public interface TranspositionTableADT {
+	/**
+	 * Starts a new search. Everything stored before is kept, but is overwritten
+	 * before anything the new search stores.
+	 */
+	public void newSearch();
+
+	/**
+	 * Empties the table.
+	 */
+	public void clear();
+
+	/**
+	 * Gets the number of slots in the table.
+	 * @return The number of slots.
+	 */
+	public int capacity();
+
+	/**
+	 * Finds the value stored for a configuration.
+	 * @param key The hash of the configuration.
+	 * @return The packed value, or TranspositionTable.MISS if it is not in the table.
+	 */
+	public int probe(long key);
+
+	/**
+	 * Stores the value for a configuration.
+	 * @param key The hash of the configuration.
+	 * @param value The packed value.
+	 */
+	public void store(long key, int value);
+}
@@ -0,0 +1,103 @@
+/**
+ * Class that scores an unfinished board by how close each player is to winning. A
+ * window is a run of k squares in a row, column or diagonal; a player can still win
+ * in it only if the other player has no squares in it. Every window that only one
+ * player has played in counts for that player, four times as much for each extra
+ * square they have in it. The score is the computer's total minus the human's.
+ *
+ * The number of squares each player has in every window is kept up to date by Windows
+ * as plays are made and taken back, which only touches the windows through the square
+ * played (at most 4k of them), so the score is always ready without looking at the
+ * board.
+ */
+public class WindowEvaluator {
+	//How much finer the search's scores are when this evaluator is used. See
+	//TicTacToe.evalBoard(int).
+	public static final int SCALE = 8192;
+
+	private Windows windows; //Every window and the squares each player has in it.
+	private int[] weights; //What a window is worth for each number of squares in it.
+	private int total; //The computer's open windows minus the human's, weighted.
+
+	/**
+	 * Constructor that finds every window on a board and counts the squares already played.
+	 * @param board The game board.
+	 */
+	public WindowEvaluator(BitBoard board){
+		windows = new Windows(board);
+		int toWin = windows.getWinAmount();
+
+		//An empty window is worth nothing, then 1, 4, 16... for each square in it.
+		weights = new int[toWin + 1];
+		for (int c = 1; c <= toWin; c++){
+			weights[c] = 1 << Math.min(2 * (c - 1), 20);
+		}
+
+		//Counts the squares that have already been played.
+		for (int square = 0; square < board.getSquares(); square++){
+			if (board.get(square) != BitBoard.EMPTY) add(square, board.get(square));
+		}
+	}
+
+	/**
+	 * Constructor that copies another evaluator, so it can follow a copy of the game.
+	 * @param other The evaluator to copy.
+	 */
+	public WindowEvaluator(WindowEvaluator other){
+		windows = new Windows(other.windows);
+		weights = other.weights;
+		total = other.total;
+	}
+
+	/**
+	 * Counts a play.
+	 * @param square The square that was played.
+	 * @param player BitBoard.HUMAN or BitBoard.COMPUTER.
+	 */
+	public void add(int square, int player){
+		int[] through = windows.through(square);
+		for (int w : through){
+			total -= value(w);
+		}
+		windows.add(square, player);
+		for (int w : through){
+			total += value(w);
+		}
+	}
+
+	/**
+	 * Takes back a play.
+	 * @param square The square that is being emptied.
+	 * @param player The player who had played it.
+	 */
+	public void remove(int square, int player){
+		int[] through = windows.through(square);
+		for (int w : through){
+			total -= value(w);
+		}
+		windows.remove(square, player);
+		for (int w : through){
+			total += value(w);
+		}
+	}
+
+	/**
+	 * Gets the score of the board.
+	 * @return The computer's weighted open windows minus the human's.
+	 */
+	public int score(){
+		return total;
+	}
+
+	/**
+	 * Helper method that works out what a window is worth.
+	 * @param w The window.
+	 * @return Its worth to the computer (negative if it is worth something to the human).
+	 */
+	private int value(int w){
+		int human = windows.stones(BitBoard.HUMAN, w);
+		int computer = windows.stones(BitBoard.COMPUTER, w);
+		if (human > 0 && computer > 0) return 0;
+		return weights[computer] - weights[human];
+	}
+}
@@ -0,0 +1,169 @@
+import java.util.Arrays;
+
+/**
+ * Class that lists every window on a board (run of k squares in a row, column or
+ * diagonal) and keeps how many squares each player has in each one. A player can
+ * still win in a window only if the other player has no squares in it.
+ *
+ * The windows never change, so a copy shares them and only copies the counts. Only
+ * the windows through the square played change, so keeping the counts up to date
+ * takes O(k) for every play (each square is in at most 4k windows).
+ */
+public class Windows {
+	private int toWin; //The number of squares in a window (k).
+	private int[] starts; //The first square of each window.
+	private int[] steps; //How far apart the squares of each window are.
+	private int[][] windowsOf; //The windows each square is in.
+	private int[] squareSums; //The sum of the squares in each window.
+	private int[][] stones; //The number of squares each player has in each window.
+	private int[] playedSums; //The sum of the played squares in each window.
+
+	/**
+	 * Constructor that finds every window on a board. No squares are counted yet.
+	 * @param board The game board.
+	 */
+	public Windows(BitBoard board){
+		int size = board.getSize();
+		int squares = board.getSquares();
+		int directions = BitBoard.directions();
+		toWin = board.getWinAmount();
+
+		//Lists every window by its first square and direction.
+		int[] allStarts = new int[squares * directions];
+		int[] allSteps = new int[squares * directions];
+		int[] count = new int[squares];
+		int windows = 0;
+		for (int square = 0; square < squares; square++){
+			for (int d = 0; d < directions; d++){
+				//The window must end on the board.
+				int row = square / size + (toWin - 1) * BitBoard.ROW_STEP[d];
+				int col = square % size + (toWin - 1) * BitBoard.COL_STEP[d];
+				if (row < 0 || row >= size || col < 0 || col >= size) continue;
+
+				int step = BitBoard.ROW_STEP[d] * size + BitBoard.COL_STEP[d];
+				for (int i = 0; i < toWin; i++){
+					count[square + i * step]++;
+				}
+				allStarts[windows] = square;
+				allSteps[windows++] = step;
+			}
+		}
+		starts = Arrays.copyOf(allStarts, windows);
+		steps = Arrays.copyOf(allSteps, windows);
+
+		//Lists the windows each square is in.
+		windowsOf = new int[squares][];
+		squareSums = new int[windows];
+		for (int square = 0; square < squares; square++){
+			windowsOf[square] = new int[count[square]];
+			count[square] = 0;
+		}
+		for (int w = 0; w < windows; w++){
+			for (int i = 0; i < toWin; i++){
+				int square = starts[w] + i * steps[w];
+				windowsOf[square][count[square]++] = w;
+				squareSums[w] += square;
+			}
+		}
+
+		stones = new int[2][windows];
+		playedSums = new int[windows];
+	}
+
+	/**
+	 * Constructor that copies another set of windows, so it can follow a copy of the game.
+	 * @param other The windows to copy.
+	 */
+	public Windows(Windows other){
+		//The windows never change, so they can be shared.
+		toWin = other.toWin;
+		starts = other.starts;
+		steps = other.steps;
+		windowsOf = other.windowsOf;
+		squareSums = other.squareSums;
+
+		stones = new int[][] {other.stones[0].clone(), other.stones[1].clone()};
+		playedSums = other.playedSums.clone();
+	}
+
+	/**
+	 * Counts a play in every window through its square.
+	 * @param square The square that was played.
+	 * @param player BitBoard.HUMAN or BitBoard.COMPUTER.
+	 */
+	public void add(int square, int player){
+		int[] mine = stones[player];
+		for (int w : windowsOf[square]){
+			mine[w]++;
+			playedSums[w] += square;
+		}
+	}
+
+	/**
+	 * Takes back a play in every window through its square.
+	 * @param square The square that is being emptied.
+	 * @param player The player who had played it.
+	 */
+	public void remove(int square, int player){
+		int[] mine = stones[player];
+		for (int w : windowsOf[square]){
+			mine[w]--;
+			playedSums[w] -= square;
+		}
+	}
+
+	/**
+	 * Gets the number of windows on the board.
+	 * @return The number of windows.
+	 */
+	public int count(){
+		return starts.length;
+	}
+
+	/**
+	 * Gets the number of squares in a window.
+	 * @return The number of squares in a line needed to win (k).
+	 */
+	public int getWinAmount(){
+		return toWin;
+	}
+
+	/**
+	 * Gets the windows a square is in. The array is shared and must not be changed.
+	 * @param square The square (row * n + column).
+	 * @return The windows.
+	 */
+	public int[] through(int square){
+		return windowsOf[square];
+	}
+
+	/**
+	 * Gets one of the squares of a window.
+	 * @param w The window.
+	 * @param i Which of its squares, from 0 to k - 1.
+	 * @return The square (row * n + column).
+	 */
+	public int square(int w, int i){
+		return starts[w] + i * steps[w];
+	}
+
+	/**
+	 * Gets the number of squares a player has in a window.
+	 * @param player BitBoard.HUMAN or BitBoard.COMPUTER.
+	 * @param w The window.
+	 * @return The number of squares.
+	 */
+	public int stones(int player, int w){
+		return stones[player][w];
+	}
+
+	/**
+	 * Finds the one empty square of a window a player has all but one square of (or
+	 * the sum of the empty squares of any other window).
+	 * @param w The window.
+	 * @return The empty square.
+	 */
+	public int emptySquare(int w){
+		return squareSums[w] - playedSums[w];
+	}
+}
@@ -0,0 +1,98 @@
+import java.util.Random;
+
+/**
+ * Class that holds the random numbers used to hash Tic-Tac-Toe boards. Every square
+ * has one number per player, and a board's hash is the XOR of the numbers of the
+ * squares that have been played. Playing or emptying a square therefore changes the
+ * hash with a single XOR. The numbers only depend on the board size, so the same
+ * board always gets the same hash.
+ *
+ * A square board looks the same after being rotated or reflected, which gives eight
+ * versions of every board. This class also maps squares between the eight versions,
+ * so a hash can be kept for each of them and the smallest used to stand for all eight.
+ */
+public class ZobristKeys {
+	//The number of ways a square board can be rotated or reflected.
+	public static final int SYMMETRIES = 8;
+
+	private long[][] keys; //The number for each player and square.
+	private int[][] map; //Where each square ends up under each symmetry.
+	private int[][] unmap; //Where each square came from under each symmetry.
+
+	/**
+	 * Constructor that generates the numbers for a board.
+	 * @param size The size of the board (n).
+	 */
+	public ZobristKeys(int size){
+		int squares = size * size;
+
+		//Seeds with the board size so the numbers never change between runs.
+		Random generator = new Random(0x5DEECE66DL * squares + 11);
+		keys = new long[2][squares];
+		for (int player = 0; player < keys.length; player++){
+			for (int square = 0; square < squares; square++){
+				keys[player][square] = generator.nextLong();
+			}
+		}
+
+		//Works out where every square goes under each rotation and reflection.
+		map = new int[SYMMETRIES][squares];
+		unmap = new int[SYMMETRIES][squares];
+		int last = size - 1;
+		for (int row = 0; row < size; row++){
+			for (int col = 0; col < size; col++){
+				int[] rows = {row, col, last - row, last - col, row, last - row, col, last - col};
+				int[] cols = {col, last - row, last - col, row, last - col, col, row, last - row};
+				for (int s = 0; s < SYMMETRIES; s++){
+					int square = row * size + col;
+					int image = rows[s] * size + cols[s];
+					map[s][square] = image;
+					unmap[s][image] = square;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Gets the number that is XORed into the hash when a player plays a square.
+	 * @param player BitBoard.HUMAN or BitBoard.COMPUTER.
+	 * @param square The square (row * n + column).
+	 * @return The number for that player and square.
+	 */
+	public long key(int player, int square){
+		return keys[player][square];
+	}
+
+	/**
+	 * Gets the number that is XORed into the hash of a rotated or reflected version
+	 * of the board when a player plays a square.
+	 * @param symmetry The rotation or reflection (0 leaves the board as it is).
+	 * @param player BitBoard.HUMAN or BitBoard.COMPUTER.
+	 * @param square The square on the real board (row * n + column).
+	 * @return The number for that player and the square it is moved to.
+	 */
+	public long key(int symmetry, int player, int square){
+		return keys[player][map[symmetry][square]];
+	}
+
+	/**
+	 * Finds where a square on the real board ends up on a rotated or reflected board.
+	 * @param symmetry The rotation or reflection.
+	 * @param square The square on the real board.
+	 * @return The square on the rotated or reflected board.
+	 */
+	public int map(int symmetry, int square){
+		return map[symmetry][square];
+	}
+
+	/**
+	 * Finds the square on the real board that a square on a rotated or reflected
+	 * board came from.
+	 * @param symmetry The rotation or reflection.
+	 * @param square The square on the rotated or reflected board.
+	 * @return The square on the real board.
+	 */
+	public int unmap(int symmetry, int square){
+		return unmap[symmetry][square];
+	}
+}